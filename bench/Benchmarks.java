@@ -0,0 +1,248 @@
+/**
+ * @author Adam Jilling
+ *
+ * Benchmarks for the hot paths of the game: building grids of each
+ * difficulty, blanking and grading puzzles, solving them with each solver
+ * engine, checking for a winner, and painting the puzzle and its boxes
+ * onto an offscreen image.
+ * Checking for a winner is measured through GameModel, which is all
+ * Game.checkWinner asks. Run without a window:
+ *   java Benchmarks [name filter] [milliseconds per round]
+ */
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+
+public class Benchmarks
+{
+	/**
+	 * PUZZLES: number of puzzles the solving benchmarks cycle through
+	 */
+	private static final int PUZZLES = 64;
+
+	public static void main(String[] args)
+	{
+		// painting only needs an offscreen image
+		System.setProperty("java.awt.headless", "true");
+
+		String filter = args.length > 0 ? args[0] : "";
+		long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+		Harness harness = new Harness(millis, millis, filter);
+
+		final Generator generator = new Generator(new SplittableRandom(42));
+		final Grid[] hard = new Grid[PUZZLES];
+		for (int i = 0; i < PUZZLES; i++)
+		{
+			hard[i] = Grid.create(2, generator);
+		}
+		final Board work = new Board();
+
+		// building grids
+		String[] names = {"easy", "medium", "hard"};
+		for (int d = 0; d < 3; d++)
+		{
+			final int difficulty = d;
+			harness.run("grid." + names[d], new Harness.Operation()
+			{
+				public int run()
+				{
+					return Grid.create(difficulty, generator).getSteps();
+				}
+			});
+		}
+
+		// the larger boards, ungraded
+		for (int n = Board.ORDER + 1; n <= Board.MAX_ORDER; n++)
+		{
+			final int order = n;
+			harness.run("grid.hard.order" + n, new Harness.Operation()
+			{
+				public int run()
+				{
+					return Grid.create(2, order, generator).grid.get(0);
+				}
+			});
+		}
+
+		harness.run("shuffle", new Harness.Operation()
+		{
+			public int run()
+			{
+				work.copyFrom(hard[0].getAnswerGrid());
+				generator.shuffle(work);
+				return work.get(0);
+			}
+		});
+
+		// blanking the same full grid over and over
+		final Board answer = hard[0].getAnswerGrid();
+		harness.run("fillBlanks.50", new Harness.Operation()
+		{
+			public int run()
+			{
+				work.copyFrom(answer);
+				generator.fillBlanks(work, answer, 50, true);
+				return work.get(0);
+			}
+		});
+
+		harness.run("fillGradedBlanks.hard", new Harness.Operation()
+		{
+			public int run()
+			{
+				work.copyFrom(answer);
+				generator.fillGradedBlanks(work, answer, 50, 2);
+				return work.get(0);
+			}
+		});
+
+		// grading and solving cycle through the hard puzzles
+		final Grader grader = new Grader();
+		harness.run("grade", new Harness.Operation()
+		{
+			private int next;
+
+			public int run()
+			{
+				return grader.grade(hard[next++ % PUZZLES].grid);
+			}
+		});
+
+		// every solver engine on the same puzzles
+		for (int e = 0; e < Solver.ENGINES.length; e++)
+		{
+			final Solver solver = Solver.create(Solver.ENGINES[e]);
+			harness.run("solve." + Solver.ENGINES[e], new Harness.Operation()
+			{
+				private int next;
+
+				public int run()
+				{
+					work.copyFrom(hard[next++ % PUZZLES].grid);
+					return solver.solve(work) ? work.get(0) : -1;
+				}
+			});
+
+			harness.run("countSolutions." + Solver.ENGINES[e], new Harness.Operation()
+			{
+				private int next;
+
+				public int run()
+				{
+					return solver.countSolutions(hard[next++ % PUZZLES].grid, 2);
+				}
+			});
+		}
+
+		// the same two jobs on all the hard puzzles at once, one operation
+		// per puzzle, so they compare with the lines above
+		final Board[] grids = new Board[PUZZLES];
+		final Board[] boards = new Board[PUZZLES];
+		final int[] found = new int[PUZZLES];
+		for (int i = 0; i < PUZZLES; i++)
+		{
+			grids[i] = hard[i].grid;
+			boards[i] = new Board();
+		}
+		BatchPropagator[] propagators = {new ScalarPropagator(PUZZLES), BatchPropagator.create(PUZZLES)};
+		for (int p = 0; p < propagators.length; p++)
+		{
+			// the second is only worth running if the vector one loaded
+			if (p > 0 && propagators[p] instanceof ScalarPropagator) break;
+
+			final BatchSolver batch = new BatchSolver(new BitmaskSolver(), propagators[p]);
+			String name = propagators[p].getClass().getName();
+			harness.run("batch.solve." + name, new Harness.Operation()
+			{
+				private int next;
+
+				public int run()
+				{
+					if (next % PUZZLES == 0)
+					{
+						for (int i = 0; i < PUZZLES; i++)
+						{
+							boards[i].copyFrom(hard[i].grid);
+						}
+						batch.solve(boards, 0, PUZZLES, 1, found);
+					}
+					int i = next++ % PUZZLES;
+					return found[i] > 0 ? boards[i].get(0) : -1;
+				}
+			});
+
+			harness.run("batch.countSolutions." + name, new Harness.Operation()
+			{
+				private int next;
+
+				public int run()
+				{
+					if (next % PUZZLES == 0) batch.countSolutions(grids, 0, PUZZLES, 2, found);
+					return found[next++ % PUZZLES];
+				}
+			});
+		}
+
+		// fill in every blank but one, then keep changing that one cell
+		final GameModel model = new GameModel(hard[0]);
+		for (int i = 1; i < model.blankCount(); )
+		{
+			int cell = model.blankCell(i);
+			model.set(cell, model.answer(cell));
+		}
+		final int last = model.blankCell(0);
+		harness.run("checkWinner", new Harness.Operation()
+		{
+			public int run()
+			{
+				model.set(last, model.answer(last));
+				boolean winner = model.isSolved();
+				model.set(last, 0);
+				return winner ? 1 : 0;
+			}
+		});
+
+		// painting a puzzle with every blank filled in by the user
+		BufferedImage image = new BufferedImage(600, 730, BufferedImage.TYPE_INT_RGB);
+		final Graphics pane = image.getGraphics();
+		final Puzzle puzzle = new Puzzle(100, 140, hard[0]);
+		for (int i = 0; i < Board.CELLS; i++)
+		{
+			puzzle.updateValue(i, answer.get(i));
+		}
+
+		harness.run("paint.layer", new Harness.Operation()
+		{
+			public int run()
+			{
+				puzzle.paintLayer(pane);
+				return 0;
+			}
+		});
+
+		harness.run("paint.puzzle", new Harness.Operation()
+		{
+			public int run()
+			{
+				puzzle.paint(pane);
+				return 0;
+			}
+		});
+
+		harness.run("paint.box", new Harness.Operation()
+		{
+			private int value;
+
+			public int run()
+			{
+				value = value % 9 + 1;
+				Box.paint(pane, 106, 146, Box.SIZE, value, Color.BLUE);
+				return value;
+			}
+		});
+
+		pane.dispose();
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * @author Adam Jilling
+ *
+ * A small benchmark runner in the spirit of JMH, without needing it on
+ * the classpath. Each benchmark is warmed up first, then run for a number
+ * of timed rounds on the calling thread. Every round reports operations
+ * per second, time per operation and bytes allocated per operation, the
+ * last measured with the JVM's per-thread allocation counter, so a hot
+ * path that starts allocating shows up as a number that isn't 0.
+ */
+
+import java.lang.management.ManagementFactory;
+
+public class Harness
+{
+	/**
+	 * One benchmark, run over and over by the harness
+	 */
+	public interface Operation
+	{
+		/**
+		 * Does one operation
+		 * @return any value depending on the work done, so the JIT
+		 *   can't skip the work
+		 */
+		int run();
+	}
+
+	/**
+	 * ROUNDS: number of timed rounds per benchmark
+	 * threadBean: per-thread allocation counter, null if the JVM
+	 *   doesn't have one
+	 * warmup, round: length of the warmup and of each round, in nanoseconds
+	 * filter: only benchmarks whose name contains this are run
+	 * sink: collects every result, see Operation.run
+	 */
+	private static final int ROUNDS = 5;
+	private static final com.sun.management.ThreadMXBean threadBean = allocationCounter();
+	private final long warmup, round;
+	private final String filter;
+	private volatile int sink;
+
+	/**
+	 * Constructor
+	 * @param someWarmup: warmup time, in milliseconds
+	 * @param someRound: time of each round, in milliseconds
+	 * @param someFilter: only run benchmarks whose name contains this,
+	 *   or all of them if empty
+	 */
+	public Harness(long someWarmup, long someRound, String someFilter)
+	{
+		warmup = someWarmup * 1000000;
+		round = someRound * 1000000;
+		filter = someFilter;
+	}
+
+	/**
+	 * Warms up and measures one benchmark, then prints its results
+	 * @param name
+	 * @param operation
+	 */
+	public void run(String name, Operation operation)
+	{
+		if (!name.contains(filter)) return;
+
+		// warm up until the JIT has had time to compile the hot path
+		long end = System.nanoTime() + warmup;
+		while (System.nanoTime() < end)
+		{
+			sink += operation.run();
+		}
+
+		double best = 0, total = 0, bytes = 0;
+		for (int r = 0; r < ROUNDS; r++)
+		{
+			long ops = 0;
+			long allocated = allocatedBytes();
+			long begin = System.nanoTime();
+			end = begin + round;
+			long now;
+			do
+			{
+				sink += operation.run();
+				ops++;
+			} while ((now = System.nanoTime()) < end);
+			allocated = allocatedBytes() - allocated;
+
+			double rate = ops / ((now - begin) / 1e9);
+			best = Math.max(best, rate);
+			total += rate;
+			bytes += (double)allocated / ops;
+		}
+
+		double mean = total / ROUNDS;
+		System.out.printf("%-24s %12.1f ops/s (best %.1f) %12.2f us/op %10.1f B/op%n",
+				name, mean, best, 1e6 / mean, bytes / ROUNDS);
+	}
+
+	/**
+	 * Accessor for the bytes allocated by the calling thread so far
+	 * @return bytes, 0 if the JVM can't count them
+	 */
+	private static long allocatedBytes()
+	{
+		if (threadBean == null) return 0;
+		return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Looks up the JVM's per-thread allocation counter and turns it on
+	 * @return the counter, or null if the JVM doesn't have one
+	 */
+	private static com.sun.management.ThreadMXBean allocationCounter()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+
+		com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean)bean;
+		if (!counter.isThreadAllocatedMemorySupported()) return null;
+		counter.setThreadAllocatedMemoryEnabled(true);
+		return counter;
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * @author Adam Jilling
+ *
+ * Checks that painting a frame allocates nothing once warmed up. Paints
+ * what Game.render paints on every frame, the layer image, the user's
+ * numbers and all of the buttons, onto an offscreen image over and over,
+ * and exits with status 1 if the thread's allocated bytes counter moved at
+ * all while doing so. The layer itself is only drawn when a new puzzle
+ * comes up, so it is drawn once here and not counted. Run without a
+ * window:
+ *   java PaintAllocationCheck [frames]
+ */
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+public class PaintAllocationCheck
+{
+	/**
+	 * WARMUP: frames painted before counting, enough for the JIT to
+	 *   compile the paint path
+	 * puzzle: a hard puzzle with half its blanks filled in by the user
+	 * buttons: the game's own buttons, from Game.buttons, with medium
+	 *   and a number selected
+	 * layer: the puzzle's layer image, as Game.drawLayer makes it
+	 */
+	private static final int WARMUP = 20000;
+	private final Puzzle puzzle;
+	private final Chooser[] buttons = Game.buttons(Board.SIZE);
+	private final BufferedImage layer;
+
+	/**
+	 * Constructor sets up a game the way Game does
+	 */
+	public PaintAllocationCheck()
+	{
+		Grid grid = new HardGrid(new Generator(new SplittableRandom(42)));
+		puzzle = new Puzzle(100, 140, grid);
+		for (int i = 0; i < Board.CELLS; i += 2)
+		{
+			puzzle.updateValue(i, grid.getAnswerGrid().get(i));
+		}
+
+		buttons[1].select();
+		buttons[10].select();
+
+		layer = new BufferedImage(600, 730, BufferedImage.TYPE_INT_RGB);
+		Graphics g = layer.getGraphics();
+		puzzle.paintLayer(g);
+		g.dispose();
+	}
+
+	/**
+	 * Paints one frame
+	 * @param g
+	 */
+	private void paint(Graphics g)
+	{
+		g.drawImage(layer, 0, 0, null);
+		puzzle.paint(g);
+		for (int b = 0; b < buttons.length; b++)
+		{
+			buttons[b].paint(g);
+		}
+	}
+
+	/**
+	 * Looks up the JVM's per-thread allocation counter and turns it on
+	 * @return the counter, or null if the JVM doesn't have one
+	 */
+	private static com.sun.management.ThreadMXBean allocationCounter()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+
+		com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean)bean;
+		if (!counter.isThreadAllocatedMemorySupported()) return null;
+		counter.setThreadAllocatedMemoryEnabled(true);
+		return counter;
+	}
+
+	public static void main(String[] args)
+	{
+		// painting only needs an offscreen image
+		System.setProperty("java.awt.headless", "true");
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+		com.sun.management.ThreadMXBean counter = allocationCounter();
+		if (counter == null)
+		{
+			System.err.println("this JVM can't count allocated bytes, nothing checked");
+			System.exit(2);
+		}
+		long thread = Thread.currentThread().getId();
+
+		PaintAllocationCheck check = new PaintAllocationCheck();
+		BufferedImage image = new BufferedImage(600, 730, BufferedImage.TYPE_INT_RGB);
+		Graphics pane = image.getGraphics();
+		for (int f = 0; f < WARMUP; f++)
+		{
+			check.paint(pane);
+		}
+
+		long allocated = counter.getThreadAllocatedBytes(thread);
+		for (int f = 0; f < frames; f++)
+		{
+			check.paint(pane);
+		}
+		allocated = counter.getThreadAllocatedBytes(thread) - allocated;
+		pane.dispose();
+
+		System.out.printf("%d bytes allocated over %d frames%n", allocated, frames);
+		if (allocated != 0) System.exit(1);
+	}
+}
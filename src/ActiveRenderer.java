@@ -0,0 +1,174 @@
+/**
+ * @author Adam Jilling
+ *
+ * Optional way of drawing the game: instead of waiting for AWT to call
+ * paint, a frame loop draws the whole window into a BufferStrategy and
+ * shows it, double buffered, so nothing flickers. A frame is only drawn
+ * when something has changed, and never more often than the frame cap.
+ * The drawing itself runs on the event thread, like paint does, so it
+ * never sees the game half way through a change.
+ *
+ * Turned on with -Dsudoku.active=true, frame cap set with -Dsudoku.fps=60
+ */
+
+import java.awt.EventQueue;
+import java.awt.Graphics;
+import java.awt.image.BufferStrategy;
+import java.lang.reflect.InvocationTargetException;
+
+public class ActiveRenderer implements Runnable
+{
+	/**
+	 * REPORT: number of frames between render time reports
+	 * game: the window to draw
+	 * strategy: buffers to draw into, flipped or copied to the screen
+	 * frameTime: minimum time between frames, in nanoseconds
+	 * dirty: true if something changed since the last frame
+	 * running: false once the loop should stop
+	 * frames: number of frames drawn
+	 * lastRender, totalRender, maxRender: time spent drawing frames,
+	 *   in nanoseconds
+	 * draw: draws one frame on the event thread
+	 */
+	private static final int REPORT = 100;
+	private final Game game;
+	private final BufferStrategy strategy;
+	private final long frameTime;
+	private boolean dirty = true;
+	private volatile boolean running = true;
+	private long frames;
+	private long lastRender, totalRender, maxRender;
+	private final Runnable draw = new Runnable()
+	{
+		public void run()
+		{
+			drawFrame();
+		}
+	};
+
+	/**
+	 * Constructor sets up the buffers, the window must already be visible
+	 * @param someGame: window to draw
+	 * @param fps: maximum number of frames per second
+	 */
+	public ActiveRenderer(Game someGame, int fps)
+	{
+		game = someGame;
+		frameTime = 1000000000L / Math.max(1, fps);
+		game.createBufferStrategy(2);
+		strategy = game.getBufferStrategy();
+	}
+
+	/**
+	 * Starts the frame loop on its own thread
+	 */
+	public void start()
+	{
+		Thread loop = new Thread(this, "active-renderer");
+		loop.setDaemon(true);
+		loop.start();
+	}
+
+	/**
+	 * Stops the frame loop after the current frame and reports the
+	 * render times of all the frames drawn
+	 */
+	public void stop()
+	{
+		running = false;
+		markDirty();
+		report();
+	}
+
+	/**
+	 * Asks for a new frame to be drawn
+	 */
+	public synchronized void markDirty()
+	{
+		dirty = true;
+		notifyAll();
+	}
+
+	/**
+	 * The frame loop: waits for a change, draws a frame, then waits out
+	 * the rest of the frame time before looking for the next change
+	 */
+	public void run()
+	{
+		try
+		{
+			while (running)
+			{
+				synchronized (this)
+				{
+					while (!dirty) wait();
+					dirty = false;
+				}
+				if (!running) break;
+
+				long begin = System.nanoTime();
+				EventQueue.invokeAndWait(draw);
+
+				long rest = frameTime - (System.nanoTime() - begin);
+				if (rest > 0) Thread.sleep(rest / 1000000, (int)(rest % 1000000));
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// the game is closing
+		}
+		catch (InvocationTargetException e)
+		{
+			throw new IllegalStateException("drawing a frame failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Draws one whole frame, starting over if the buffers were lost
+	 */
+	private void drawFrame()
+	{
+		long begin = System.nanoTime();
+		do
+		{
+			do
+			{
+				Graphics g = strategy.getDrawGraphics();
+				try
+				{
+					game.render(g);
+				}
+				finally
+				{
+					g.dispose();
+				}
+			} while (strategy.contentsRestored());
+			strategy.show();
+		} while (strategy.contentsLost());
+		record(System.nanoTime() - begin);
+	}
+
+	/**
+	 * Keeps track of render times and reports them every REPORT frames
+	 * @param time: time taken by the last frame, in nanoseconds
+	 */
+	private synchronized void record(long time)
+	{
+		frames++;
+		lastRender = time;
+		totalRender += time;
+		maxRender = Math.max(maxRender, time);
+
+		if (frames % REPORT == 0) report();
+	}
+
+	/**
+	 * Prints the number of frames drawn and the time they took
+	 */
+	private synchronized void report()
+	{
+		if (frames == 0) return;
+		System.out.printf("rendered %d frames, last %d us, average %d us, max %d us%n",
+				frames, lastRender / 1000, totalRender / frames / 1000, maxRender / 1000);
+	}
+}
@@ -0,0 +1,216 @@
+/**
+ * @author Adam Jilling
+ *
+ * Fills in naked singles (cells with only one candidate left) and hidden
+ * singles (digits with only one place left in a row, column or box) on
+ * many boards at once, all in lockstep. The boards are stored struct-of-arrays
+ * style: for each cell, the value of that cell on every board sits next to
+ * each other, so one step of work on a cell is the same for every board
+ * and can be done on many boards per instruction.
+ *
+ * Values are stored as digit bits, digit d is bit d-1 and 0 is blank, and
+ * each row, column and box keeps the OR of its cells' bits, so a cell's
+ * candidates are simply the digits missing from its three units. Those
+ * masks are numbered as in Board and are handed on with each board, so a
+ * solver that keeps the same masks can start from them.
+ * Propagation only fills in digits the puzzle already forces, so a board
+ * keeps exactly the same solutions and a solver finishes it with the same
+ * results as the original puzzle, only with less left to do.
+ *
+ * create() uses VectorPropagator from the vector folder when it has been
+ * compiled and the jdk.incubator.vector module is available, and
+ * ScalarPropagator otherwise. Both give identical results.
+ */
+
+public abstract class BatchPropagator
+{
+	/**
+	 * ALL: mask with a bit set for each digit 1 through 9
+	 * UNITS: number of rows, columns and boxes
+	 * UNITS_OF: the row, column and box of each cell, numbered 0 to 8,
+	 *   9 to 17 and 18 to 26
+	 * CELLS_OF: the cells of each unit
+	 */
+	protected static final int ALL = 0x1FF;
+	protected static final int UNITS = 3 * Board.SIZE;
+	protected static final int[][] UNITS_OF = new int[Board.CELLS][3];
+	protected static final int[][] CELLS_OF = new int[UNITS][Board.SIZE];
+
+	static
+	{
+		int[] filled = new int[UNITS];
+		for (int i = 0; i < Board.CELLS; i++)
+		{
+			int a = Board.column(i), b = Board.row(i);
+			UNITS_OF[i][0] = b;
+			UNITS_OF[i][1] = 9 + a;
+			UNITS_OF[i][2] = 18 + (b / 3) * 3 + a / 3;
+			for (int k = 0; k < 3; k++)
+			{
+				int u = UNITS_OF[i][k];
+				CELLS_OF[u][filled[u]++] = i;
+			}
+		}
+	}
+
+	/**
+	 * lanes: number of boards
+	 * bits: digit bit of every cell of every board, cell i of board
+	 *   lane is at i * lanes + lane
+	 * units: OR of the bits of every cell in each unit, unit u of board
+	 *   lane is at u * lanes + lane
+	 * dead: 1 for each board found to have no solution, 0 otherwise
+	 */
+	protected final int lanes;
+	protected final int[] bits;
+	protected final int[] units;
+	protected final int[] dead;
+
+	/**
+	 * Constructor
+	 * @param someLanes: number of boards to work on at once
+	 */
+	protected BatchPropagator(int someLanes)
+	{
+		lanes = someLanes;
+		bits = new int[Board.CELLS * lanes];
+		units = new int[UNITS * lanes];
+		dead = new int[lanes];
+	}
+
+	/**
+	 * Creates the fastest propagator available
+	 * @param lanes: least number of boards to work on at once
+	 * @return a VectorPropagator if it can be loaded, else a ScalarPropagator
+	 */
+	public static BatchPropagator create(int lanes)
+	{
+		try
+		{
+			return (BatchPropagator)Class.forName("VectorPropagator")
+					.getConstructor(int.class).newInstance(lanes);
+		}
+		catch (ReflectiveOperationException | LinkageError e)
+		{
+			// not compiled, or the vector module wasn't added
+			return new ScalarPropagator(lanes);
+		}
+	}
+
+	/**
+	 * Accessor for the number of boards
+	 * @return number of boards, which may be more than asked for
+	 */
+	public int lanes()
+	{
+		return lanes;
+	}
+
+	/**
+	 * Copies a board in, a board with two equal digits in a unit is
+	 * marked as dead straight away
+	 * @param lane: which board
+	 * @param board
+	 */
+	public void load(int lane, Board board)
+	{
+		if (board.order() != Board.ORDER)
+			throw new IllegalArgumentException("only classic 9x9 boards can be propagated in a batch");
+		dead[lane] = 0;
+		for (int u = 0; u < UNITS; u++)
+		{
+			units[u * lanes + lane] = 0;
+		}
+		for (int i = 0; i < Board.CELLS; i++)
+		{
+			int digit = board.get(i);
+			int bit = digit == 0 ? 0 : 1 << (digit - 1);
+			bits[i * lanes + lane] = bit;
+			for (int k = 0; k < 3; k++)
+			{
+				int at = UNITS_OF[i][k] * lanes + lane;
+				if ((units[at] & bit) != 0) dead[lane] = 1;
+				units[at] |= bit;
+			}
+		}
+	}
+
+	/**
+	 * Copies a board out
+	 * @param lane: which board
+	 * @param board: board to copy into
+	 */
+	public void store(int lane, Board board)
+	{
+		for (int i = 0; i < Board.CELLS; i++)
+		{
+			int bit = bits[i * lanes + lane];
+			board.set(i, bit == 0 ? 0 : Integer.numberOfTrailingZeros(bit) + 1);
+		}
+	}
+
+	/**
+	 * Copies out the digits in each unit of a board, for a solver to
+	 * start from
+	 * @param lane: which board
+	 * @param used: gets the mask of the digits in each row, then each
+	 *   column, then each box, UNITS in all
+	 */
+	public void used(int lane, int[] used)
+	{
+		for (int u = 0; u < UNITS; u++)
+		{
+			used[u] = units[u * lanes + lane];
+		}
+	}
+
+	/**
+	 * @param lane: which board
+	 * @return true if the board has two equal digits in a unit, or
+	 *   propagation found a cell with no candidates or a digit with no
+	 *   place in a unit, so the board has no solution
+	 */
+	public boolean isDead(int lane)
+	{
+		return dead[lane] != 0;
+	}
+
+	/**
+	 * Fills in naked singles on every board, cell by cell, then hidden
+	 * singles, unit by unit, until a whole pass over the cells and units
+	 * fills in nothing new
+	 */
+	public void propagate()
+	{
+		boolean changed = true;
+		while (changed)
+		{
+			changed = false;
+			for (int i = 0; i < Board.CELLS; i++)
+			{
+				changed |= propagate(i);
+			}
+			for (int u = 0; u < UNITS; u++)
+			{
+				changed |= propagateUnit(u);
+			}
+		}
+	}
+
+	/**
+	 * Fills in cell i on every board where it is blank and has only one
+	 * candidate, and marks every board where it has none as dead
+	 * @param i: cell index
+	 * @return true if any board changed
+	 */
+	protected abstract boolean propagate(int i);
+
+	/**
+	 * Fills in every digit that has only one place left in unit u, on
+	 * every board, and marks every board where a digit has no place left
+	 * or two digits need the same cell as dead
+	 * @param u: unit index
+	 * @return true if any board changed
+	 */
+	protected abstract boolean propagateUnit(int u);
+}
@@ -0,0 +1,152 @@
+/**
+ * @author Adam Jilling
+ *
+ * Solves many puzzles together: a BatchPropagator fills in the naked and
+ * hidden singles of a whole batch in lockstep, then an ordinary Solver
+ * finishes each puzzle on its own, starting from the row, column and box
+ * masks the propagator already has. Because propagation only fills in
+ * forced digits, the results are exactly what the solver would give on the
+ * original puzzles. Like the solvers, a batch solver is not safe to share
+ * between threads.
+ */
+
+public class BatchSolver
+{
+	/**
+	 * propagator: fills in singles on a batch of boards at once
+	 * solver: finishes each board
+	 * scratch: board being finished
+	 * used: digits in each unit of the board being finished
+	 * loaded: number of boards in the propagator
+	 */
+	private final BatchPropagator propagator;
+	private final Solver solver;
+	private final Board scratch = new Board();
+	private final int[] used = new int[BatchPropagator.UNITS];
+	private int loaded;
+
+	/**
+	 * Constructor
+	 * @param someSolver: solver to finish each puzzle with
+	 * @param lanes: least number of puzzles to propagate at once
+	 */
+	public BatchSolver(Solver someSolver, int lanes)
+	{
+		this(someSolver, BatchPropagator.create(lanes));
+	}
+
+	/**
+	 * Constructor for a particular propagator
+	 * @param someSolver: solver to finish each puzzle with
+	 * @param somePropagator: propagator to use, only by this batch solver
+	 */
+	public BatchSolver(Solver someSolver, BatchPropagator somePropagator)
+	{
+		solver = someSolver;
+		propagator = somePropagator;
+	}
+
+	/**
+	 * Accessor for the propagator in use, to tell which kind was loaded
+	 * @return propagator
+	 */
+	public BatchPropagator propagator()
+	{
+		return propagator;
+	}
+
+	/**
+	 * Solves puzzles in place, giving the same results as calling
+	 * solve(board, limit) on the solver for each
+	 * @param boards: puzzles, each gets its first solution if it has one
+	 * @param from: first puzzle to solve
+	 * @param count: number of puzzles to solve
+	 * @param limit: maximum number of solutions to look for
+	 * @param found: gets the number of solutions of each puzzle, at the
+	 *   same index as the puzzle
+	 */
+	public void solve(Board[] boards, int from, int count, int limit, int[] found)
+	{
+		for (int at = from; at < from + count; at += loaded)
+		{
+			load(boards, at, from + count - at);
+			for (int lane = 0; lane < loaded; lane++)
+			{
+				found[at + lane] = finish(lane, boards[at + lane], limit);
+			}
+		}
+	}
+
+	/**
+	 * Counts the solutions of puzzles, giving the same results as calling
+	 * countSolutions(board, limit) on the solver for each
+	 * @param boards: puzzles, left as they are
+	 * @param from: first puzzle to count
+	 * @param count: number of puzzles to count
+	 * @param limit: number of solutions to stop at
+	 * @param found: gets the number of solutions of each puzzle, at the
+	 *   same index as the puzzle
+	 */
+	public void countSolutions(Board[] boards, int from, int count, int limit, int[] found)
+	{
+		for (int at = from; at < from + count; at += loaded)
+		{
+			load(boards, at, from + count - at);
+			for (int lane = 0; lane < loaded; lane++)
+			{
+				found[at + lane] = count(lane, limit);
+			}
+		}
+	}
+
+	/**
+	 * Loads as many puzzles as fit and propagates them
+	 * @param boards
+	 * @param from: first puzzle to load
+	 * @param count: number of puzzles left
+	 * @return number of puzzles loaded, finish each of them next
+	 */
+	public int load(Board[] boards, int from, int count)
+	{
+		loaded = Math.min(count, propagator.lanes());
+		for (int lane = 0; lane < loaded; lane++)
+		{
+			propagator.load(lane, boards[from + lane]);
+		}
+		propagator.propagate();
+		return loaded;
+	}
+
+	/**
+	 * Finishes one loaded puzzle with the solver
+	 * @param lane: which of the loaded puzzles
+	 * @param board: the puzzle, gets its first solution if it has one
+	 * @param limit: maximum number of solutions to look for
+	 * @return number of solutions found, never more than limit
+	 */
+	public int finish(int lane, Board board, int limit)
+	{
+		if (propagator.isDead(lane)) return 0;
+
+		propagator.store(lane, scratch);
+		propagator.used(lane, used);
+		int found = solver.solve(scratch, used, limit);
+		if (found > 0) board.copyFrom(scratch);
+		return found;
+	}
+
+	/**
+	 * Counts the solutions of one loaded puzzle with the solver
+	 * @param lane: which of the loaded puzzles
+	 * @param limit: number of solutions to stop at
+	 * @return number of solutions found, never more than limit
+	 */
+	public int count(int lane, int limit)
+	{
+		if (propagator.isDead(lane)) return 0;
+
+		propagator.store(lane, scratch);
+		propagator.used(lane, used);
+		return solver.solve(scratch, used, limit);
+	}
+}
@@ -0,0 +1,479 @@
+/**
+ * @author Adam Jilling
+ *
+ * Solves Sudoku grids using candidate masks, one bit per digit, kept for
+ * every cell and brought up to date as each digit is placed. Each digit
+ * also has a mask of the cells it can still go in, so placing a digit
+ * goes straight to the peers that lose it instead of looking at them all.
+ * Naked and hidden singles are filled in before any guess is made,
+ * looking only at the cells and units that the last placements changed,
+ * and guesses are always made in the cell with the fewest candidates.
+ * Boards of any order work, up to 25 digits in an int mask. A solver
+ * object holds all of its working memory, sized for the order of the last
+ * board it solved, so it can be reused for any number of grids of the same
+ * order without allocating, but it is not safe to share one between
+ * threads. Cells and units are numbered as in Board.
+ */
+
+public class BitmaskSolver implements Solver
+{
+	/**
+	 * order: order of the boards the working memory is sized for
+	 * size: number of digits, and of cells in each unit
+	 * count: number of cells
+	 * all: mask with a bit set for each digit, digit d is bit d-1
+	 * rowOf, colOf, boxOf: the row, column and box of each cell, as
+	 *   Board's rowOf, columnOf and boxOf give them
+	 * units: the cells of each row, column and box, rows first, then
+	 *   columns, then boxes
+	 * words: number of longs in a mask with a bit for each cell
+	 * peers: for each cell, a mask of the other cells that share a row,
+	 *   column or box with it, words longs to a cell
+	 * lowUnits, highUnits: bit u of a cell's pair of masks is set for each
+	 *   of its units u, units 64 and up are in the high mask
+	 * state: number of ints needed to save the solver state at one depth
+	 */
+	private int order, size, count, all, words;
+	private int[] rowOf, colOf, boxOf;
+	private int[][] units;
+	private long[] peers, lowUnits, highUnits;
+	private int state;
+
+	/**
+	 * cells: digit in each cell, 0 if empty
+	 * candidates: digits that can still go in each empty cell, 0 once filled
+	 * used: mask of the digits already placed in each unit
+	 * places: mask of the empty cells each digit can still go in, words
+	 *   longs to a digit
+	 * left: number of empty cells
+	 * saved, savedPlaces: solver state saved before each guess, one slot
+	 *   per depth
+	 * solution: the first solution found
+	 * solutions: number of solutions found so far
+	 * limit: stop searching once this many solutions are found
+	 */
+	private int[] cells, candidates, used, saved, solution;
+	private long[] places, savedPlaces;
+	private int left, solutions, limit;
+
+	/**
+	 * singles: cells left with one candidate that are waiting to be filled,
+	 *   and the number waiting
+	 * lowChanged, highChanged: units whose candidates changed since they
+	 *   were last looked at for hidden singles, one bit per unit
+	 */
+	private int[] singles;
+	private int singleCount;
+	private long lowChanged, highChanged;
+
+	/**
+	 * Constructor for a solver sized for classic boards
+	 */
+	public BitmaskSolver()
+	{
+		resize(Board.ORDER);
+	}
+
+	/**
+	 * Solves a grid in place, blank cells are 0
+	 * @param board: grid to solve
+	 * @return true if a solution was found and written to board
+	 */
+	public boolean solve(Board board)
+	{
+		return solve(board, 1) > 0;
+	}
+
+	/**
+	 * Solves a grid in place while counting its solutions, so a puzzle
+	 * can be solved and checked for a unique solution in one search
+	 * @param board: grid to solve, gets the first solution found
+	 * @param limit: maximum number of solutions to look for
+	 * @return number of solutions found, never more than limit
+	 */
+	public int solve(Board board, int limit)
+	{
+		return solve(board, null, limit);
+	}
+
+	/**
+	 * Counts the solutions of a grid without changing it. The search
+	 * stops as soon as limit solutions are found, so a limit of 2 is
+	 * enough to tell whether a puzzle has a unique solution
+	 * @param board: grid to check, blank cells are 0
+	 * @param limit: maximum number of solutions to look for
+	 * @return number of solutions found, never more than limit
+	 */
+	public int countSolutions(Board board, int limit)
+	{
+		return run(board, null, limit);
+	}
+
+	/**
+	 * Solves a grid in place whose singles were already filled in,
+	 * starting from the masks it was given instead of working them out
+	 * and looking over every unit again. Naked singles are still found
+	 * as the candidates are worked out, and a grid that wasn't fully
+	 * propagated still gets the right answer, only more slowly
+	 * @param board: grid to solve, gets the first solution found
+	 * @param someUsed: mask of the digits in each row, then each column,
+	 *   then each box, which must match the board
+	 * @param limit: maximum number of solutions to look for
+	 * @return number of solutions found, never more than limit
+	 */
+	public int solve(Board board, int[] someUsed, int limit)
+	{
+		int found = run(board, someUsed, limit);
+		if (found == 0) return 0;
+
+		for (int i = 0; i < count; i++)
+		{
+			board.set(i, solution[i]);
+		}
+		return found;
+	}
+
+	/**
+	 * Sizes the tables and working memory for boards of an order
+	 * @param someOrder
+	 */
+	private void resize(int someOrder)
+	{
+		order = someOrder;
+		size = order * order;
+		count = size * size;
+		all = (1 << size) - 1;
+		words = (count + 63) / 64;
+		state = 2 * count + 3 * size + 1;
+
+		rowOf = new int[count];
+		colOf = new int[count];
+		boxOf = new int[count];
+		units = new int[3 * size][size];
+		lowUnits = new long[count];
+		highUnits = new long[count];
+		for (int i = 0; i < count; i++)
+		{
+			rowOf[i] = i % size;
+			colOf[i] = i / size;
+			boxOf[i] = (rowOf[i] / order) * order + colOf[i] / order;
+			units[rowOf[i]][colOf[i]] = i;
+			units[size + colOf[i]][rowOf[i]] = i;
+			units[2 * size + boxOf[i]][(rowOf[i] % order) * order + colOf[i] % order] = i;
+			int[] of = {rowOf[i], size + colOf[i], 2 * size + boxOf[i]};
+			for (int u : of)
+			{
+				if (u < 64) lowUnits[i] |= 1L << u;
+				else highUnits[i] |= 1L << (u - 64);
+			}
+		}
+
+		peers = new long[count * words];
+		for (int i = 0; i < count; i++)
+		{
+			for (int j = 0; j < count; j++)
+			{
+				if (j != i && (rowOf[j] == rowOf[i] || colOf[j] == colOf[i] || boxOf[j] == boxOf[i]))
+				{
+					peers[i * words + j / 64] |= 1L << j;
+				}
+			}
+		}
+
+		cells = new int[count];
+		candidates = new int[count];
+		used = new int[3 * size];
+		places = new long[size * words];
+		saved = new int[(count + 1) * state];
+		savedPlaces = new long[(count + 1) * size * words];
+		solution = new int[count];
+		singles = new int[count];
+	}
+
+	/**
+	 * Loads the board and runs the search
+	 * @param board
+	 * @param given: masks of the digits in each unit, or null to work
+	 *   them out and look over every unit for hidden singles
+	 * @param max: solution limit
+	 * @return number of solutions found
+	 */
+	private int run(Board board, int[] given, int max)
+	{
+		if (board.order() != order) resize(board.order());
+		if (given != null && given.length != used.length)
+			throw new IllegalArgumentException(given.length + " unit masks for a board of order " + order);
+		solutions = 0;
+		limit = max;
+		left = count;
+		for (int u = 0; u < used.length; u++)
+		{
+			used[u] = given == null ? 0 : given[u];
+		}
+		for (int w = 0; w < words; w++)
+		{
+			places[w] = 0;
+		}
+
+		// mark the givens as used, two equal digits in a unit means no
+		// solution, and the empty cells as places for the first digit
+		for (int i = 0; i < count; i++)
+		{
+			int digit = board.get(i);
+			cells[i] = digit;
+			if (digit == 0)
+			{
+				places[i / 64] |= 1L << i;
+			}
+			else if (given != null)
+			{
+				left--;
+			}
+			else
+			{
+				int bit = 1 << (digit - 1);
+				int row = rowOf[i], col = size + colOf[i], box = 2 * size + boxOf[i];
+				if (((used[row] | used[col] | used[box]) & bit) != 0) return 0;
+				used[row] |= bit;
+				used[col] |= bit;
+				used[box] |= bit;
+				left--;
+			}
+		}
+
+		// every digit starts out able to go in every empty cell, less the
+		// peers of the givens of that digit
+		for (int k = words; k < places.length; k++)
+		{
+			places[k] = places[k % words];
+		}
+		singleCount = 0;
+		for (int i = 0; i < count; i++)
+		{
+			int cand = 0;
+			if (cells[i] == 0)
+			{
+				cand = all & ~(used[rowOf[i]] | used[size + colOf[i]] | used[2 * size + boxOf[i]]);
+				if (cand == 0) return 0;
+				if ((cand & (cand - 1)) == 0) singles[singleCount++] = i;
+			}
+			else
+			{
+				int at = (cells[i] - 1) * words;
+				for (int w = 0; w < words; w++)
+				{
+					places[at + w] &= ~peers[i * words + w];
+				}
+			}
+			candidates[i] = cand;
+		}
+
+		// then look at every unit for hidden singles, unless that was done
+		int unitCount = given != null ? 0 : 3 * size;
+		lowChanged = unitCount < 64 ? (1L << unitCount) - 1 : -1L;
+		highChanged = unitCount > 64 ? (1L << (unitCount - 64)) - 1 : 0;
+
+		if (propagate()) search(0);
+		return solutions;
+	}
+
+	/**
+	 * Guesses each candidate of the cell with the fewest candidates
+	 * and keeps searching until the solution limit is reached
+	 * @param depth: number of guesses made so far
+	 */
+	private void search(int depth)
+	{
+		// no empty cells left means the grid is solved
+		if (left == 0)
+		{
+			if (solutions == 0) System.arraycopy(cells, 0, solution, 0, count);
+			solutions++;
+			return;
+		}
+
+		// find the empty cell with the fewest candidates
+		int best = -1, bestCount = size + 1;
+		for (int i = 0; i < count && bestCount > 2; i++)
+		{
+			if (cells[i] == 0)
+			{
+				int count = Integer.bitCount(candidates[i]);
+				if (count < bestCount)
+				{
+					best = i;
+					bestCount = count;
+				}
+			}
+		}
+
+		int remaining = candidates[best];
+		while (remaining != 0 && solutions < limit)
+		{
+			int bit = remaining & -remaining;
+			remaining ^= bit;
+
+			save(depth);
+			if (place(best, bit) && propagate()) search(depth + 1);
+			restore(depth);
+		}
+	}
+
+	/**
+	 * Fills in naked singles (a cell with only one candidate) and hidden
+	 * singles (a digit with only one possible cell in a unit) until
+	 * neither finds anything new. Only the cells and units that placing
+	 * a digit changed are looked at, so a step costs the same however
+	 * full the grid already is
+	 * @return false if the grid has reached a contradiction
+	 */
+	private boolean propagate()
+	{
+		// the tables are sized at run time, so keep them in locals for the hot loops
+		final int[] cells = this.cells, candidates = this.candidates, used = this.used;
+		final int[][] units = this.units;
+		final int size = this.size, all = this.all;
+		while (true)
+		{
+			// naked singles, a cell that is already filled was reached another way
+			while (singleCount > 0)
+			{
+				int i = singles[--singleCount];
+				if (cells[i] == 0 && !place(i, candidates[i])) return false;
+			}
+
+			// hidden singles in the next unit that changed
+			int u;
+			if (lowChanged != 0)
+			{
+				u = Long.numberOfTrailingZeros(lowChanged);
+				lowChanged &= lowChanged - 1;
+			}
+			else if (highChanged != 0)
+			{
+				u = 64 + Long.numberOfTrailingZeros(highChanged);
+				highChanged &= highChanged - 1;
+			}
+			else return true;
+
+			// a unit with every digit placed has nothing left to find
+			if (used[u] == all) continue;
+			int[] unit = units[u];
+			int once = 0, twice = 0;
+			for (int k = 0; k < size; k++)
+			{
+				int cand = candidates[unit[k]];
+				twice |= once & cand;
+				once |= cand;
+			}
+
+			// every digit must fit somewhere in the unit
+			if ((once | used[u]) != all) return false;
+
+			int hidden = once & ~twice;
+			while (hidden != 0)
+			{
+				int bit = hidden & -hidden;
+				hidden ^= bit;
+
+				// find the one cell in the unit that can still take this digit
+				int k = 0;
+				while (k < size && (candidates[unit[k]] & bit) == 0) k++;
+				if (k == size || !place(unit[k], bit)) return false;
+			}
+		}
+	}
+
+	/**
+	 * Puts a digit in a cell, marks it as used in the cell's units and
+	 * takes it out of the candidates of the peers that still had it.
+	 * Peers left with one candidate are put on the singles list, and every
+	 * unit that lost a candidate on the changed list
+	 * @param i: cell index
+	 * @param bit: mask of the digit to place
+	 * @return false if a peer was left with no candidates
+	 */
+	private boolean place(int i, int bit)
+	{
+		final int[] candidates = this.candidates;
+		final long[] places = this.places;
+		final int words = this.words;
+		int digit = Integer.numberOfTrailingZeros(bit);
+		cells[i] = digit + 1;
+		left--;
+		used[rowOf[i]] |= bit;
+		used[size + colOf[i]] |= bit;
+		used[2 * size + boxOf[i]] |= bit;
+
+		// the cell is no longer a place for any of its candidates
+		for (int rest = candidates[i]; rest != 0; rest &= rest - 1)
+		{
+			places[Integer.numberOfTrailingZeros(rest) * words + i / 64] &= ~(1L << i);
+		}
+		candidates[i] = 0;
+
+		// collect the changes in locals so the loop only writes candidates
+		final int[] singles = this.singles;
+		final long[] lowUnits = this.lowUnits, highUnits = this.highUnits;
+		long low = lowUnits[i], high = highUnits[i];
+		int waiting = singleCount;
+		for (int w = 0; w < words; w++)
+		{
+			long lost = places[digit * words + w] & peers[i * words + w];
+			places[digit * words + w] ^= lost;
+			for (; lost != 0; lost &= lost - 1)
+			{
+				int p = w * 64 + Long.numberOfTrailingZeros(lost);
+				int cand = candidates[p] ^ bit;
+				candidates[p] = cand;
+				if (cand == 0) return false;
+				if ((cand & (cand - 1)) == 0) singles[waiting++] = p;
+				low |= lowUnits[p];
+				high |= highUnits[p];
+			}
+		}
+		singleCount = waiting;
+		lowChanged |= low;
+		highChanged |= high;
+		return true;
+	}
+
+	/**
+	 * Empties the singles list and the changed units, left over when a
+	 * contradiction cut propagation short
+	 */
+	private void clearWork()
+	{
+		singleCount = 0;
+		lowChanged = highChanged = 0;
+	}
+
+	/**
+	 * Saves the cells, candidates and unit masks before making a guess
+	 * @param depth
+	 */
+	private void save(int depth)
+	{
+		int at = depth * state;
+		System.arraycopy(cells, 0, saved, at, count);
+		System.arraycopy(candidates, 0, saved, at + count, count);
+		System.arraycopy(used, 0, saved, at + 2 * count, 3 * size);
+		saved[at + state - 1] = left;
+		System.arraycopy(places, 0, savedPlaces, depth * places.length, places.length);
+	}
+
+	/**
+	 * Undoes a guess by restoring the state saved at the same depth
+	 * @param depth
+	 */
+	private void restore(int depth)
+	{
+		int at = depth * state;
+		System.arraycopy(saved, at, cells, 0, count);
+		System.arraycopy(saved, at + count, candidates, 0, count);
+		System.arraycopy(saved, at + 2 * count, used, 0, 3 * size);
+		left = saved[at + state - 1];
+		System.arraycopy(savedPlaces, depth * places.length, places, 0, places.length);
+		clearWork();
+	}
+}
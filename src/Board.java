@@ -0,0 +1,228 @@
+/**
+ * @author Adam Jilling
+ *
+ * The numbers of a Sudoku grid stored in one flat array. A board of order
+ * n has n * n rows, columns, boxes and digits, so order 3 is the classic
+ * 9x9 grid, order 4 is 16x16 and order 5 is 25x25. Cells are numbered
+ * a * size + b, where a is the column and b the row on screen, the same
+ * way the old short[9][9] grids were indexed as grid[a][b]. A value of 0
+ * means the cell is blank.
+ *
+ * The static SIZE, CELLS, index, column and row describe the classic
+ * 9x9 board, which the solvers and file formats built only for it use.
+ */
+
+import java.util.Arrays;
+
+public class Board
+{
+	/**
+	 * ORDER, SIZE, CELLS: order, number of rows and columns, and number of
+	 *   cells of a classic board
+	 * MIN_ORDER, MAX_ORDER: orders a board can have
+	 * order: size of each box's side
+	 * size: number of rows, columns, boxes and digits
+	 * cells: value of each cell
+	 */
+	public static final int ORDER = 3;
+	public static final int SIZE = ORDER * ORDER;
+	public static final int CELLS = SIZE * SIZE;
+	public static final int MIN_ORDER = 3;
+	public static final int MAX_ORDER = 5;
+	private final int order;
+	private final int size;
+	private final byte[] cells;
+
+	/**
+	 * Constructor for a blank classic board
+	 */
+	public Board()
+	{
+		this(ORDER);
+	}
+
+	/**
+	 * Constructor for a blank board of any order
+	 * @param someOrder: from MIN_ORDER to MAX_ORDER
+	 */
+	public Board(int someOrder)
+	{
+		if (someOrder < MIN_ORDER || someOrder > MAX_ORDER)
+			throw new IllegalArgumentException("unsupported board order " + someOrder);
+		order = someOrder;
+		size = order * order;
+		cells = new byte[size * size];
+	}
+
+	/**
+	 * Constructor for a copy of another board
+	 * @param other: board to copy
+	 */
+	public Board(Board other)
+	{
+		this(other.order);
+		copyFrom(other);
+	}
+
+	/**
+	 * Converts a column and row to a cell index on a classic board
+	 * @param a: column
+	 * @param b: row
+	 * @return cell index
+	 */
+	public static int index(int a, int b)
+	{
+		return a * SIZE + b;
+	}
+
+	/**
+	 * @param i: cell index on a classic board
+	 * @return column of the cell
+	 */
+	public static int column(int i)
+	{
+		return i / SIZE;
+	}
+
+	/**
+	 * @param i: cell index on a classic board
+	 * @return row of the cell
+	 */
+	public static int row(int i)
+	{
+		return i % SIZE;
+	}
+
+	/**
+	 * @return size of each box's side, 3 for a classic board
+	 */
+	public int order()
+	{
+		return order;
+	}
+
+	/**
+	 * @return number of rows, columns, boxes and digits
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return number of cells
+	 */
+	public int cellCount()
+	{
+		return cells.length;
+	}
+
+	/**
+	 * Converts a column and row to a cell index on this board
+	 * @param a: column
+	 * @param b: row
+	 * @return cell index
+	 */
+	public int cell(int a, int b)
+	{
+		return a * size + b;
+	}
+
+	/**
+	 * @param i: cell index
+	 * @return column of the cell on this board
+	 */
+	public int columnOf(int i)
+	{
+		return i / size;
+	}
+
+	/**
+	 * @param i: cell index
+	 * @return row of the cell on this board
+	 */
+	public int rowOf(int i)
+	{
+		return i % size;
+	}
+
+	/**
+	 * @param i: cell index
+	 * @return box of the cell on this board, numbered across then down
+	 */
+	public int boxOf(int i)
+	{
+		return (rowOf(i) / order) * order + columnOf(i) / order;
+	}
+
+	/**
+	 * @param i: cell index
+	 * @return value of the cell, 0 if blank
+	 */
+	public int get(int i)
+	{
+		return cells[i];
+	}
+
+	/**
+	 * @param a: column
+	 * @param b: row
+	 * @return value of the cell, 0 if blank
+	 */
+	public int get(int a, int b)
+	{
+		return cells[a * size + b];
+	}
+
+	/**
+	 * @param i: cell index
+	 * @param value: new value, 0 for blank
+	 */
+	public void set(int i, int value)
+	{
+		cells[i] = (byte)value;
+	}
+
+	/**
+	 * @param a: column
+	 * @param b: row
+	 * @param value: new value, 0 for blank
+	 */
+	public void set(int a, int b, int value)
+	{
+		cells[a * size + b] = (byte)value;
+	}
+
+	/**
+	 * Overwrites every cell with the cells of another board of the same order
+	 * @param other
+	 */
+	public void copyFrom(Board other)
+	{
+		if (other.order != order)
+			throw new IllegalArgumentException("boards of order " + other.order + " and " + order);
+		System.arraycopy(other.cells, 0, cells, 0, cells.length);
+	}
+
+	/**
+	 * Blanks every cell
+	 */
+	public void clear()
+	{
+		Arrays.fill(cells, (byte)0);
+	}
+
+	/**
+	 * Two boards are equal if they have the same order and every cell
+	 * has the same value
+	 */
+	public boolean equals(Object other)
+	{
+		return other instanceof Board && Arrays.equals(cells, ((Board)other).cells);
+	}
+
+	public int hashCode()
+	{
+		return Arrays.hashCode(cells);
+	}
+}
@@ -2,86 +2,85 @@
  * @author Adam Jilling
  * 
  * A box is an individual number element that makes up the Sudoku grid.
- * It will pull a single int value from the grid array and dress it up to
- * make it visually presentable in the puzzle on screen. An array of box
- * objects will then ultimately form the puzzle.
+ * It takes a single int value from the puzzle and dresses it up to
+ * make it visually presentable on screen. Boxes hold no state of their
+ * own: the puzzle keeps the value, color and position of every cell and
+ * has each one drawn here. Boxes are SIZE wide on a classic board and
+ * smaller on the larger boards, so every method takes the box's size.
  */
 
 import java.awt.Color;
-import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 
 public class Box
 {
 	/**
-	 * Data members:
-	 * int x, y: determine where on screen to be placed
-	 * int centerX, centerY: will determine center of box to line up number
-	 * String value: the int value will be converted to a string
-	 *   to allow use of String's sizing methods to make sure the numbers
-	 *   are centered
-	 * Color fontColor: the color of the font to use
-	 * boolean changeable: will ensure the user can only change non-default values
-	 * int SIZE: the size of each box element
-	 * 
+	 * int SIZE: the size of each box element on a classic board
 	 */
-	private int x, y, centerX, centerY;
-	String value;
-	Color fontColor = Color.BLACK;
-	protected boolean changeable = false;
-	private final int SIZE = 43;
+	public static final int SIZE = 43;
 	
 	/**
-	 * Constructor
-	 * @param someX: x coordinate
-	 * @param someY: y coordinate
-	 * @param someValue: value to display
-	 * @param color: color of font to use
-	 * If value is blank, sets changeable to true
-	 * Will also determine the centerX and centerY values here based on
-	 * already known x, y, and size values
+	 * Area covered by a box, including its border
+	 * @param x: x coordinate of the box
+	 * @param y: y coordinate of the box
+	 * @param size: width of the box
+	 * @return bounds of the box
 	 */
-	public Box(int someX, int someY, String someValue, Color color)
+	public static Rectangle getBounds(int x, int y, int size)
 	{
-		x = someX;
-		y = someY;
-		value = someValue;
-		fontColor = color;
-		centerX = x + (SIZE / 2);
-		centerY = y + (SIZE / 2);
-		if (someValue.equals("")) changeable = true;
+		return new Rectangle(x, y, size + 1, size + 1);
 	}
 	
 	/**
-	 * Determines if a user click is inside a box object
-	 * @param someX
-	 * @param someY
-	 * @return true if inside, false if not
+	 * Paints one box
+	 * @param pane
+	 * @param x: x coordinate of the box
+	 * @param y: y coordinate of the box
+	 * @param size: width of the box
+	 * @param value: the number to show, 0 for blank. Its text and size come
+	 *   from Theme, so the numbers can be centered without measuring
+	 *   them on every paint
+	 * @param fontColor: the color of the font to use
 	 */
-	public boolean isInside(int someX, int someY)
+	public static void paint(Graphics pane, int x, int y, int size, int value, Color fontColor)
 	{
-		return (someX >= x && someX <= (x+SIZE) && someY >= y && someY <= (y+SIZE));
+		// nothing to do if the box is outside the area being painted
+		if (!pane.hitClip(x, y, size + 1, size + 1)) return;
+		
+		// draw the border of the box
+		pane.setColor(Color.BLACK);
+		pane.drawRect(x, y, size, size);
+		
+		paintValue(pane, x, y, size, value, fontColor);
 	}
 	
 	/**
-	 * Paints each box object
+	 * Paints only the number of one box, for boxes whose border
+	 * has already been drawn
 	 * @param pane
+	 * @param x: x coordinate of the box
+	 * @param y: y coordinate of the box
+	 * @param size: width of the box
+	 * @param value: the number to show, 0 for blank
+	 * @param fontColor: the color of the font to use
 	 */
-	public void paint(Graphics pane)
+	public static void paintValue(Graphics pane, int x, int y, int size, int value, Color fontColor)
 	{
-		// draw the border of the box
-		pane.setColor(Color.BLACK);
-		pane.drawRect(x, y, SIZE, SIZE);
-
+		// nothing to do if the box is outside the area being painted
+		if (!pane.hitClip(x, y, size + 1, size + 1)) return;
+		
 		// set the font, font size, and font color
 		pane.setColor(fontColor);
-		pane.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
+		pane.setFont(Theme.cellFont(size));
 		
 		// get size overall size of font to make sure it is centered within box
-		int labelWidth = pane.getFontMetrics().stringWidth(value);
-		int labelHeight = pane.getFontMetrics().getMaxAscent();
+		int labelWidth = Theme.digitWidth(pane, value, size);
+		int labelHeight = Theme.digitAscent(pane, size);
 		
 		// draw the string within the box
-		pane.drawString(value, centerX - labelWidth / 2, centerY + labelHeight / 2);
+		int centerX = x + (size / 2);
+		int centerY = y + (size / 2);
+		pane.drawString(Theme.DIGITS[value], centerX - labelWidth / 2, centerY + labelHeight / 2);
 	}
 }
@@ -0,0 +1,502 @@
+/**
+ * @author Adam Jilling
+ *
+ * Solves a file of puzzles in the usual 81 character format, one per
+ * line, row by row with '.' or '0' for a blank. Anything after the first
+ * 81 characters of a line is ignored, and empty lines and lines starting
+ * with '#' are skipped. The input file is memory-mapped and parsed
+ * straight into boards, without making a string per line. Puzzles are
+ * handed to worker threads in batches, each worker with its own solver
+ * of the chosen engine, see Solver,
+ * and the results are written in the same order as the input, one line
+ * per puzzle: the solution, or the puzzle itself if it has none or more
+ * than one, then a ',' and the status. Which of several solutions a
+ * solver finds first depends on the engine, so leaving them out keeps the
+ * output the same whichever engine is used. With batch propagation turned
+ * on, each worker fills in the naked and hidden singles of a whole batch
+ * in lockstep before solving its puzzles, see BatchSolver, which gives the
+ * same results. It is not faster than solving each puzzle on its own, so
+ * it is off unless asked for.
+ *
+ * Statuses:
+ *   solved: exactly one solution
+ *   multiple: more than one solution
+ *   unsolvable: no solution
+ *   invalid: the line isn't a puzzle
+ *
+ * Run on its own:
+ *   java BulkSolver input [--out file] [--threads n] [--engine bitmask|dlx] [--batch]
+ * Results go to standard output unless a file is given, and the
+ * throughput, solve times and status counts are reported on standard error.
+ */
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BulkSolver
+{
+	/**
+	 * SOLVED, MULTIPLE, UNSOLVABLE, INVALID: status of a puzzle
+	 * STATUS: text written for each status, with the ',' before it
+	 * BATCH: number of puzzles handed to a worker at a time
+	 * CHUNK: most bytes of the input mapped at once
+	 * BUFFER: size of the output buffer in bytes
+	 * BUCKETS: number of one microsecond buckets in the solve time
+	 *   histogram, slower solves all count in the last one
+	 */
+	public static final int SOLVED = 0;
+	public static final int MULTIPLE = 1;
+	public static final int UNSOLVABLE = 2;
+	public static final int INVALID = 3;
+	private static final byte[][] STATUS = {bytes(",solved\n"), bytes(",multiple\n"),
+			bytes(",unsolvable\n"), bytes(",invalid\n")};
+	private static final int BATCH = 256;
+	private static final long CHUNK = 1 << 30;
+	private static final int BUFFER = 1 << 16;
+	private static final int BUCKETS = 1 << 17;
+
+	/**
+	 * threads: number of worker threads
+	 * pool: the worker threads
+	 * solvers: one solver per worker thread
+	 * batchSolvers: one batch solver per worker thread, null unless
+	 *   batch propagation is turned on
+	 * free: batches ready to be filled again
+	 * pending: batches handed to the workers, in input order
+	 * output: where the results are written
+	 * buffer: results not written yet
+	 * counts: number of puzzles with each status
+	 * times: histogram of solve times, in microseconds
+	 * total: number of puzzles read
+	 */
+	private final int threads;
+	private final ExecutorService pool;
+	private final ThreadLocal<Solver> solvers;
+	private final ThreadLocal<BatchSolver> batchSolvers;
+	private final ArrayDeque<Batch> free = new ArrayDeque<Batch>();
+	private final ArrayDeque<Future<Batch>> pending = new ArrayDeque<Future<Batch>>();
+	private FileChannel output;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+	private final long[] counts = new long[STATUS.length];
+	private final long[] times = new long[BUCKETS];
+	private long total;
+
+	/**
+	 * Constructor
+	 * @param someThreads: number of worker threads to use
+	 * @param engine: solver engine to use, see Solver.create
+	 * @param batch: true to propagate each batch in lockstep first
+	 */
+	public BulkSolver(int someThreads, final String engine, boolean batch)
+	{
+		threads = someThreads;
+		pool = Executors.newFixedThreadPool(threads);
+		Solver.create(engine); // fail now on an unknown engine
+		solvers = new ThreadLocal<Solver>()
+		{
+			protected Solver initialValue()
+			{
+				return Solver.create(engine);
+			}
+		};
+		batchSolvers = !batch ? null : new ThreadLocal<BatchSolver>()
+		{
+			protected BatchSolver initialValue()
+			{
+				return new BatchSolver(solvers.get(), BATCH);
+			}
+		};
+	}
+
+	/**
+	 * Solves every puzzle of a file and writes the results
+	 * @param input: file of puzzles
+	 * @param someOutput: channel to write the results to
+	 * @throws IOException
+	 */
+	public void solve(Path input, FileChannel someOutput) throws IOException
+	{
+		output = someOutput;
+		try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			long position = 0;
+			Batch batch = nextBatch();
+			while (position < size)
+			{
+				// map as much as fits, then parse every line that ends inside it
+				long length = Math.min(CHUNK, size - position);
+				MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				boolean last = position + length == size;
+
+				int start = 0;
+				int end = (int)length;
+				for (int at = 0; at <= end; at++)
+				{
+					if (at < end && chunk.get(at) != '\n') continue;
+					if (at == end && !last) break;
+
+					if (parse(chunk, start, at, batch.boards[batch.size]))
+					{
+						batch.status[batch.size++] = SOLVED;
+					}
+					else if (isLine(chunk, start, at))
+					{
+						batch.status[batch.size++] = INVALID;
+					}
+					if (batch.size == BATCH)
+					{
+						submit(batch);
+						batch = nextBatch();
+					}
+					start = at + 1;
+				}
+
+				if (start == 0 && !last) throw new IOException("line too long at byte " + position);
+				position += Math.min(start, length);
+			}
+			if (batch.size > 0) submit(batch);
+			else free.add(batch);
+
+			while (!pending.isEmpty()) write(pending.poll());
+			flush();
+		}
+	}
+
+	/**
+	 * Stops the worker threads
+	 */
+	public void shutdown()
+	{
+		pool.shutdown();
+	}
+
+	/**
+	 * Accessor for the number of puzzles with a status
+	 * @param status: SOLVED, MULTIPLE, UNSOLVABLE or INVALID
+	 * @return number of puzzles
+	 */
+	public long count(int status)
+	{
+		return counts[status];
+	}
+
+	/**
+	 * Accessor for the number of puzzles read
+	 * @return number of puzzles, invalid ones included
+	 */
+	public long total()
+	{
+		return total;
+	}
+
+	/**
+	 * Finds the solve time that a fraction of the puzzles were at or under
+	 * @param fraction: from 0 to 1, 0.5 for the median
+	 * @return time in microseconds
+	 */
+	public int percentile(double fraction)
+	{
+		long solved = 0;
+		for (int b = 0; b < BUCKETS; b++)
+		{
+			solved += times[b];
+		}
+
+		long wanted = (long)Math.ceil(fraction * solved);
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++)
+		{
+			seen += times[b];
+			if (seen >= wanted && seen > 0) return b;
+		}
+		return 0;
+	}
+
+	/**
+	 * Reads one puzzle from a line
+	 * @param chunk: mapped input
+	 * @param start: first byte of the line
+	 * @param end: byte after the line, the newline or end of input
+	 * @param board: board to read the puzzle into
+	 * @return true if the line starts with a puzzle
+	 */
+	private static boolean parse(ByteBuffer chunk, int start, int end, Board board)
+	{
+		if (end - start < Board.CELLS) return false;
+
+		for (int k = 0; k < Board.CELLS; k++)
+		{
+			int c = chunk.get(start + k);
+			int digit;
+			if (c >= '1' && c <= '9') digit = c - '0';
+			else if (c == '.' || c == '0') digit = 0;
+			else return false;
+
+			// the line goes row by row, so character k is in row k / 9
+			board.set(k % Board.SIZE, k / Board.SIZE, digit);
+		}
+		return true;
+	}
+
+	/**
+	 * Decides whether a line that isn't a puzzle should still be
+	 * reported, empty lines and comments are skipped
+	 * @param chunk
+	 * @param start: first byte of the line
+	 * @param end: byte after the line
+	 * @return true if the line should count as an invalid puzzle
+	 */
+	private static boolean isLine(ByteBuffer chunk, int start, int end)
+	{
+		if (end > start && chunk.get(end - 1) == '\r') end--;
+		return end > start && chunk.get(start) != '#';
+	}
+
+	/**
+	 * Hands a full batch to the workers, first writing out the oldest
+	 * batch if enough are already waiting
+	 * @param batch
+	 * @throws IOException
+	 */
+	private void submit(final Batch batch) throws IOException
+	{
+		total += batch.size;
+		pending.add(pool.submit(new Callable<Batch>()
+		{
+			public Batch call()
+			{
+				if (batchSolvers != null) batch.solve(batchSolvers.get());
+				else batch.solve(solvers.get());
+				return batch;
+			}
+		}));
+
+		// keep every worker busy without reading the whole file ahead
+		if (pending.size() > 2 * threads) write(pending.poll());
+	}
+
+	/**
+	 * Takes a batch to fill, reusing one that has been written if possible
+	 * @return empty batch
+	 */
+	private Batch nextBatch()
+	{
+		Batch batch = free.poll();
+		if (batch == null) batch = new Batch();
+		batch.size = 0;
+		return batch;
+	}
+
+	/**
+	 * Waits for a batch to be solved, writes its results and keeps it
+	 * for reuse
+	 * @param result
+	 * @throws IOException
+	 */
+	private void write(Future<Batch> result) throws IOException
+	{
+		Batch batch;
+		try
+		{
+			batch = result.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("bulk solving interrupted", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("bulk solving failed", e.getCause());
+		}
+
+		for (int p = 0; p < batch.size; p++)
+		{
+			int status = batch.status[p];
+			counts[status]++;
+			if (status != INVALID) times[(int)Math.min(BUCKETS - 1, batch.micros[p])]++;
+
+			if (buffer.remaining() < Board.CELLS + STATUS[UNSOLVABLE].length) flush();
+			if (status == INVALID) batch.boards[p].clear();
+			PuzzleStream.put(batch.boards[p], buffer);
+			buffer.put(STATUS[status]);
+		}
+		free.add(batch);
+	}
+
+	/**
+	 * Writes out every result added so far
+	 * @throws IOException
+	 */
+	private void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining()) output.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * @param text
+	 * @return the text as ASCII bytes
+	 */
+	private static byte[] bytes(String text)
+	{
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * A group of puzzles solved together by one worker
+	 */
+	private static class Batch
+	{
+		/**
+		 * boards: puzzles, replaced by their solutions once solved if
+		 *   they have exactly one
+		 * status: status of each puzzle, INVALID is set while reading
+		 * micros: time taken to solve each puzzle, in microseconds
+		 * size: number of puzzles in the batch
+		 * work: board each puzzle is solved in
+		 */
+		final Board[] boards = new Board[BATCH];
+		final int[] status = new int[BATCH];
+		final long[] micros = new long[BATCH];
+		int size;
+		private final Board work = new Board();
+
+		Batch()
+		{
+			for (int p = 0; p < BATCH; p++)
+			{
+				boards[p] = new Board();
+			}
+		}
+
+		/**
+		 * Solves every valid puzzle, checking each for a unique solution
+		 * @param solver: solver of the worker thread
+		 */
+		void solve(Solver solver)
+		{
+			for (int p = 0; p < size; p++)
+			{
+				if (status[p] == INVALID) continue;
+
+				long begin = System.nanoTime();
+				work.copyFrom(boards[p]);
+				int found = solver.solve(work, 2);
+				micros[p] = (System.nanoTime() - begin) / 1000;
+				finish(p, found);
+			}
+		}
+
+		/**
+		 * Same as above, but propagating the puzzles in lockstep first.
+		 * Each puzzle's solve time includes an even share of the
+		 * propagation time
+		 * @param solver: batch solver of the worker thread
+		 */
+		void solve(BatchSolver solver)
+		{
+			int loaded;
+			for (int from = 0; from < size; from += loaded)
+			{
+				long begin = System.nanoTime();
+				loaded = solver.load(boards, from, size - from);
+				long share = (System.nanoTime() - begin) / loaded;
+
+				for (int lane = 0; lane < loaded; lane++)
+				{
+					int p = from + lane;
+					if (status[p] == INVALID) continue;
+
+					begin = System.nanoTime();
+					work.copyFrom(boards[p]);
+					int found = solver.finish(lane, work, 2);
+					micros[p] = (share + System.nanoTime() - begin) / 1000;
+					finish(p, found);
+				}
+			}
+		}
+
+		/**
+		 * Sets a puzzle's status, and replaces it with its solution if it
+		 * has exactly one
+		 * @param p: which puzzle, just solved in work
+		 * @param found: number of solutions found, up to 2
+		 */
+		private void finish(int p, int found)
+		{
+			status[p] = found == 0 ? UNSOLVABLE : found == 1 ? SOLVED : MULTIPLE;
+			if (found == 1) boards[p].copyFrom(work);
+		}
+	}
+
+	/**
+	 * Solves a file of puzzles and reports the results
+	 * @param args: input file, then flags
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 0) throw new IllegalArgumentException("no input file given");
+		Path input = Paths.get(args[0]);
+		String out = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String engine = Solver.ENGINES[0];
+		boolean batch = false;
+
+		for (int i = 1; i < args.length; i++)
+		{
+			if (args[i].equals("--out")) out = args[++i];
+			else if (args[i].equals("--threads")) threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--engine")) engine = args[++i];
+			else if (args[i].equals("--batch")) batch = true;
+			else throw new IllegalArgumentException("unknown flag " + args[i]);
+		}
+
+		FileChannel channel = out == null ? new FileOutputStream(FileDescriptor.out).getChannel()
+				: FileChannel.open(Paths.get(out), StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		BulkSolver solver = new BulkSolver(threads, engine, batch);
+		if (batch)
+		{
+			System.err.println("batch propagation with "
+					+ BatchPropagator.create(BATCH).getClass().getName());
+		}
+
+		long begin = System.nanoTime();
+		try
+		{
+			solver.solve(input, channel);
+		}
+		finally
+		{
+			solver.shutdown();
+			channel.close();
+		}
+
+		double seconds = (System.nanoTime() - begin) / 1e9;
+		System.err.printf("%d puzzles on %d threads with %s in %.3f s, %.0f puzzles/s%n",
+				solver.total(), threads, engine, seconds, solver.total() / seconds);
+		System.err.printf("solve time p50 %d us, p99 %d us%n",
+				solver.percentile(0.5), solver.percentile(0.99));
+		System.err.printf("solved %d, multiple %d, unsolvable %d, invalid %d%n",
+				solver.count(SOLVED), solver.count(MULTIPLE), solver.count(UNSOLVABLE),
+				solver.count(INVALID));
+	}
+}
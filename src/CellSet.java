@@ -0,0 +1,116 @@
+/**
+ * @author Adam Jilling
+ *
+ * A set of cell indexes that supports adding, removing and picking a
+ * random member, all in constant time. The members are kept packed at the
+ * front of an array, and each cell remembers its slot so it can be removed
+ * by moving the last member into its place.
+ */
+
+import java.util.Arrays;
+
+public class CellSet
+{
+	/**
+	 * members: the cells in the set, in slots 0 to size - 1
+	 * slots: slot of each cell in members, -1 if not in the set
+	 * size: number of cells in the set
+	 */
+	private final int[] members;
+	private final int[] slots;
+	private int size;
+
+	/**
+	 * Constructor for an empty set of the cells of a classic board
+	 */
+	public CellSet()
+	{
+		this(Board.CELLS);
+	}
+
+	/**
+	 * Constructor for an empty set
+	 * @param capacity: number of cells, cell indexes go from 0 to capacity - 1
+	 */
+	public CellSet(int capacity)
+	{
+		members = new int[capacity];
+		slots = new int[capacity];
+		clear();
+	}
+
+	/**
+	 * Removes every cell from the set
+	 */
+	public void clear()
+	{
+		Arrays.fill(slots, -1);
+		size = 0;
+	}
+
+	/**
+	 * Adds every cell to the set
+	 */
+	public void fill()
+	{
+		for (int i = 0; i < members.length; i++)
+		{
+			members[i] = i;
+			slots[i] = i;
+		}
+		size = members.length;
+	}
+
+	/**
+	 * @param cell: cell index, ignored if already in the set
+	 */
+	public void add(int cell)
+	{
+		if (slots[cell] >= 0) return;
+		members[size] = cell;
+		slots[cell] = size++;
+	}
+
+	/**
+	 * @param cell: cell index, ignored if not in the set
+	 */
+	public void remove(int cell)
+	{
+		int slot = slots[cell];
+		if (slot < 0) return;
+
+		// move the last member into the freed slot
+		int last = members[--size];
+		members[slot] = last;
+		slots[last] = slot;
+		slots[cell] = -1;
+	}
+
+	/**
+	 * @param cell: cell index
+	 * @return true if the cell is in the set
+	 */
+	public boolean contains(int cell)
+	{
+		return slots[cell] >= 0;
+	}
+
+	/**
+	 * @return number of cells in the set
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Gets a member by its slot. Picking a uniformly random slot from
+	 * 0 to size() - 1 picks a uniformly random member
+	 * @param slot
+	 * @return cell index in that slot
+	 */
+	public int get(int slot)
+	{
+		return members[slot];
+	}
+}
@@ -7,26 +7,31 @@
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 
 public class Chooser
 {
 	/**
 	 * int x, y: location of button
 	 * int height, width: size of button
-	 * int fontSize: size of font to use, which will vary between buttons
+	 * Font font: font to use, its size will vary between buttons
 	 * final int CORNER: the rounded corner on each button will not vary
-	 * int centerX, centerY: calculate these values to keep everything centered
 	 * Color borderColor, backColor: the border and back color of each button will be
 	 *   changed dynamically
 	 * boolean isSelected: state of the button
+	 * Image[] faces: the whole button when unselected and selected, drawn
+	 *   on first use so painting doesn't need to change fonts or measure text
 	 */
-	private int x, y, height, width, fontSize;
+	private int x, y, height, width;
+	private Font font;
 	private String label;
 	private final int CORNER = 15;
-	private int centerX, centerY;
 	private Color borderColor = Color.ORANGE;
 	private Color backColor = Color.LIGHT_GRAY;
 	private boolean isSelected;
+	private Image[] faces = new Image[2];
 	
 	/**
 	 * Constructor will initialize our default values
@@ -36,7 +41,6 @@ public class Chooser
 	 * @param someWidth: width of button
 	 * @param someLabel: button's label
 	 * @param someFont: font size
-	 * centerX and centerY will be calculated and initialized here as well
 	 */
 	public Chooser(int someX, int someY, int someHeight, int someWidth, String someLabel, int someFont)
 	{
@@ -45,9 +49,7 @@ public class Chooser
 		height = someHeight;
 		width = someWidth;
 		label = someLabel;
-		fontSize = someFont;
-		centerX = x + (width / 2);
-		centerY = y + (height / 2);
+		font = new Font(Font.SANS_SERIF, Font.PLAIN, someFont);
 	}
 	
 	/**
@@ -56,24 +58,46 @@ public class Chooser
 	 */
 	public void paint(Graphics pane)
 	{
-		// fill in the background of the button
-		pane.setColor(backColor);
-		pane.fillRoundRect(x, y, width, height, CORNER, CORNER);
+		// nothing to do if the button is outside the area being painted
+		if (!pane.hitClip(x, y, width + 1, height + 1)) return;
 		
-		// draw the border of the button
-		pane.setColor(borderColor);
-		pane.drawRoundRect(x, y, width, height, CORNER, CORNER);
+		// each look of the button is drawn once, then copied on every paint
+		int face = isSelected ? 1 : 0;
+		if (faces[face] == null) faces[face] = drawFace();
+		pane.drawImage(faces[face], x, y, null);
+	}
+	
+	/**
+	 * Draws the button in its current colors into an image
+	 * @return image of the button
+	 */
+	private Image drawFace()
+	{
+		// fill in the background and draw the border of the button
+		BufferedImage image = Theme.roundRect(width, height, CORNER, backColor, borderColor);
+		Graphics pane = image.getGraphics();
 		
 		// set the font color, font size, and font
 		pane.setColor(Color.BLACK);
-		pane.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, fontSize));
+		pane.setFont(font);
 		
 		// get size of label to be able to center it
 		int labelWidth = pane.getFontMetrics().stringWidth(label);
 		int labelHeight = pane.getFontMetrics().getMaxAscent();
 		
 		// draw label in center of button
-		pane.drawString(label, centerX - labelWidth / 2, centerY + labelHeight / 2);
+		pane.drawString(label, width / 2 - labelWidth / 2, height / 2 + labelHeight / 2);
+		pane.dispose();
+		return image;
+	}
+	
+	/**
+	 * Area covered by the button, including its border
+	 * @return bounds of the button
+	 */
+	public Rectangle getBounds()
+	{
+		return new Rectangle(x, y, width + 1, height + 1);
 	}
 	
 	/**
@@ -93,7 +117,7 @@ public class Chooser
 	public void select()
 	{
 		borderColor = Color.red;
-		backColor = new Color(250, 250, 250);
+		backColor = Theme.SELECTED;
 		isSelected = true;
 	}
 	
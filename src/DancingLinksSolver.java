@@ -0,0 +1,292 @@
+/**
+ * @author Adam Jilling
+ *
+ * Solves Sudoku grids as an exact cover problem with Knuth's Dancing
+ * Links. Each of the 729 ways to put a digit in a cell is a row of the
+ * matrix, and each of the 324 constraints (every cell filled, every digit
+ * once per row, column and box) is a column. A solution picks rows that
+ * cover every column exactly once. The search always branches on the
+ * column with the fewest rows left, which holds up well on sparse puzzles
+ * with few givens.
+ *
+ * The matrix is built once per solver in plain int arrays, one entry per
+ * node, instead of node objects. Solving covers the givens' rows, searches,
+ * and then uncovers everything again, so the matrix is back to its full
+ * state for the next grid and nothing is allocated. A solver is not safe
+ * to share between threads. The matrix is for classic 9x9 boards only.
+ * Cells are numbered as in Board.
+ */
+
+public class DancingLinksSolver implements Solver
+{
+	/**
+	 * ROOT: header node that the column headers hang off
+	 * COLUMNS: number of constraints, column c has header node c
+	 * ROWS: number of cell and digit choices, row r is cell r / 9 and
+	 *   digit r % 9 + 1
+	 * FIRST: node of the first row, each row has 4 nodes in a row
+	 * NODES: total number of nodes, headers included
+	 */
+	private static final int ROOT = 0;
+	private static final int COLUMNS = 4 * Board.CELLS;
+	private static final int ROWS = 9 * Board.CELLS;
+	private static final int FIRST = COLUMNS + 1;
+	private static final int NODES = FIRST + 4 * ROWS;
+
+	/**
+	 * left, right, up, down: links of each node
+	 * column: column header of each node
+	 * size: number of rows left in each column
+	 * covered: true for each column that is covered
+	 * givens: first node of each given's row, in the order covered
+	 * chosen: first node of the row chosen at each depth of the search
+	 * solution: the first solution found
+	 * solutions: number of solutions found so far
+	 * limit: stop searching once this many solutions are found
+	 */
+	private final int[] left = new int[NODES];
+	private final int[] right = new int[NODES];
+	private final int[] up = new int[NODES];
+	private final int[] down = new int[NODES];
+	private final int[] column = new int[NODES];
+	private final int[] size = new int[COLUMNS + 1];
+	private final boolean[] covered = new boolean[COLUMNS + 1];
+	private final int[] givens = new int[Board.CELLS];
+	private final int[] chosen = new int[Board.CELLS];
+	private final int[] solution = new int[Board.CELLS];
+	private int solutions, limit;
+
+	/**
+	 * Constructor builds the full matrix
+	 */
+	public DancingLinksSolver()
+	{
+		// the root and the column headers form one circular list
+		for (int c = 0; c <= COLUMNS; c++)
+		{
+			left[c] = c == 0 ? COLUMNS : c - 1;
+			right[c] = c == COLUMNS ? 0 : c + 1;
+			up[c] = c;
+			down[c] = c;
+		}
+
+		for (int r = 0; r < ROWS; r++)
+		{
+			int cell = r / 9, digit = r % 9;
+			int a = Board.column(cell), b = Board.row(cell);
+			int box = (b / 3) * 3 + a / 3;
+			int first = FIRST + 4 * r;
+
+			// cell filled, digit in row, digit in column, digit in box
+			link(first, 1 + cell);
+			link(first + 1, 1 + 81 + b * 9 + digit);
+			link(first + 2, 1 + 162 + a * 9 + digit);
+			link(first + 3, 1 + 243 + box * 9 + digit);
+			for (int k = 0; k < 4; k++)
+			{
+				left[first + k] = first + (k + 3) % 4;
+				right[first + k] = first + (k + 1) % 4;
+			}
+		}
+	}
+
+	public boolean solve(Board board)
+	{
+		return solve(board, 1) > 0;
+	}
+
+	public int solve(Board board, int limit)
+	{
+		int found = run(board, limit);
+		if (found == 0) return 0;
+
+		for (int i = 0; i < Board.CELLS; i++)
+		{
+			board.set(i, solution[i]);
+		}
+		return found;
+	}
+
+	public int countSolutions(Board board, int limit)
+	{
+		return run(board, limit);
+	}
+
+	/**
+	 * Adds a node to the bottom of a column
+	 * @param node
+	 * @param c: column header
+	 */
+	private void link(int node, int c)
+	{
+		column[node] = c;
+		up[node] = up[c];
+		down[node] = c;
+		down[up[c]] = node;
+		up[c] = node;
+		size[c]++;
+	}
+
+	/**
+	 * Covers the givens, searches, then uncovers the givens again
+	 * @param board
+	 * @param max: solution limit
+	 * @return number of solutions found
+	 */
+	private int run(Board board, int max)
+	{
+		if (board.order() != Board.ORDER)
+			throw new IllegalArgumentException("only classic 9x9 boards can be solved with dancing links");
+		solutions = 0;
+		limit = max;
+
+		int count = 0;
+		boolean valid = true;
+		for (int i = 0; i < Board.CELLS && valid; i++)
+		{
+			solution[i] = board.get(i);
+			if (solution[i] == 0) continue;
+
+			// a given sharing a constraint with an earlier one means no solution
+			int first = FIRST + 4 * (i * 9 + solution[i] - 1);
+			for (int k = 0; k < 4; k++)
+			{
+				if (covered[column[first + k]]) valid = false;
+			}
+			if (valid)
+			{
+				select(first);
+				givens[count++] = first;
+			}
+		}
+
+		if (valid) search(0);
+
+		while (count > 0)
+		{
+			unselect(givens[--count]);
+		}
+		return solutions;
+	}
+
+	/**
+	 * Picks a row for the column with the fewest rows left, trying each
+	 * in turn until the solution limit is reached
+	 * @param depth: number of rows chosen so far, givens not included
+	 */
+	private void search(int depth)
+	{
+		// every column covered means the grid is solved
+		if (right[ROOT] == ROOT)
+		{
+			if (solutions == 0) record(depth);
+			solutions++;
+			return;
+		}
+
+		int best = right[ROOT];
+		for (int c = right[best]; c != ROOT && size[best] > 1; c = right[c])
+		{
+			if (size[c] < size[best]) best = c;
+		}
+		if (size[best] == 0) return;
+
+		cover(best);
+		for (int node = down[best]; node != best && solutions < limit; node = down[node])
+		{
+			chosen[depth] = node;
+			for (int j = right[node]; j != node; j = right[j])
+			{
+				cover(column[j]);
+			}
+			search(depth + 1);
+			for (int j = left[node]; j != node; j = left[j])
+			{
+				uncover(column[j]);
+			}
+		}
+		uncover(best);
+	}
+
+	/**
+	 * Writes the chosen rows into the solution, which already holds the givens
+	 * @param depth: number of rows chosen
+	 */
+	private void record(int depth)
+	{
+		for (int d = 0; d < depth; d++)
+		{
+			int r = (chosen[d] - FIRST) / 4;
+			solution[r / 9] = r % 9 + 1;
+		}
+	}
+
+	/**
+	 * Puts a row in the solution by covering all of its columns
+	 * @param first: first node of the row
+	 */
+	private void select(int first)
+	{
+		cover(column[first]);
+		for (int j = right[first]; j != first; j = right[j])
+		{
+			cover(column[j]);
+		}
+	}
+
+	/**
+	 * Takes a row back out of the solution, undoing select
+	 * @param first: first node of the row
+	 */
+	private void unselect(int first)
+	{
+		for (int j = left[first]; j != first; j = left[j])
+		{
+			uncover(column[j]);
+		}
+		uncover(column[first]);
+	}
+
+	/**
+	 * Removes a column from the header list, and every row with a node
+	 * in that column from the other columns it is in
+	 * @param c: column header
+	 */
+	private void cover(int c)
+	{
+		right[left[c]] = right[c];
+		left[right[c]] = left[c];
+		covered[c] = true;
+
+		for (int i = down[c]; i != c; i = down[i])
+		{
+			for (int j = right[i]; j != i; j = right[j])
+			{
+				down[up[j]] = down[j];
+				up[down[j]] = up[j];
+				size[column[j]]--;
+			}
+		}
+	}
+
+	/**
+	 * Undoes cover, in exactly the reverse order
+	 * @param c: column header
+	 */
+	private void uncover(int c)
+	{
+		for (int i = up[c]; i != c; i = up[i])
+		{
+			for (int j = left[i]; j != i; j = left[j])
+			{
+				size[column[j]]++;
+				down[up[j]] = j;
+				up[down[j]] = j;
+			}
+		}
+
+		covered[c] = false;
+		right[left[c]] = c;
+		left[right[c]] = c;
+	}
+}
@@ -2,12 +2,24 @@
  * @author Adam Jilling
  * 
  * Instantiates all objects, draws them in the
- * window, and implements all of our mouse click methods
+ * window, and implements all of our mouse click methods.
+ * The board can be of any order, with a row of number buttons
+ * for every 9 digits. Every move is saved to a journal, so closing
+ * the window and opening it again carries on with the same game,
+ * and moves can be undone with Ctrl+Z and redone with Ctrl+Y
  */
 
 import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
 
 import javax.swing.JOptionPane; // pop-up dialog box
 
@@ -19,108 +31,393 @@ public class Game extends Frame implements MouseListener
 	private static final long serialVersionUID = 1L;
 	/**
 	 * creates a window object, a puzzle object that inherits a grid,
+	 * a model of the user's progress on that puzzle, null until the
+	 *   first puzzle is ready
+	 * the board order, 3 for 9x9, 4 for 16x16 and 5 for 25x25
 	 * easy, medium, hard buttons
-	 * number buttons: 1 through 9, with a clear button
+	 * number buttons: one for each digit, 9 to a row, with a clear button
+	 *   at the end of the last row
 	 * hint and reset buttons
-	 * a background image object
 	 * int x and y values to use for our mouse coordinates
 	 * long start and elapsed to be able to time a game
 	 * int hintCounter to count the number of hints used
+	 * hintSeed: picks the boxes to fill in for hints, together with the
+	 *   hint count, so a puzzle with an ID gives the same hints every time
+	 *   it is played, whether started fresh, reset or resumed
 	 * a mouseVal which will communicate which button on the number bar is selected
+	 * a bank of pre-generated puzzles, if the BANK file exists
+	 * a supply that keeps SUPPLY_DEPTH puzzles of each difficulty ready
+	 * a journal that saves the game to the SNAPSHOT and JOURNAL files,
+	 *   null if they can't be opened
+	 * the difficulty of the puzzle being played
+	 * an active renderer, only if drawing with a frame loop
+	 * a layer image of everything that only changes with a new puzzle,
+	 *   and whether it is up to date
+	 * whether a complete frame has been drawn yet, and whether one
+	 *   with the first puzzle has
+	 * whether to quit once the first puzzle is drawn, used to record
+	 *   a class data sharing archive of everything startup loads
 	 */
 	private Window myWindow;
 	private Puzzle myPuzzle;
-	private short[][] userGrid = new short[9][9];
-	private short[][] answerGrid = new short[9][9];
+	private GameModel model;
+	private final int order;
 	private Chooser easy, medium, hard;
-	private Chooser one, two, three, four, five, six, seven, eight, nine, clear;
+	private Chooser[] numbers;
+	private Chooser clear;
 	private Chooser hint, reset;
-	private final int WIDTH = 34;
-	private Image img;
+	private static final int WIDTH = 34;
 	private int x, y;
-	private short mouseVal;
+	private int mouseVal;
 	private long start, elapsed;
 	private int hintCounter = 0;
+	private long hintSeed;
+	private static final Path BANK = Paths.get("puzzles.bank");
+	private PuzzleBank bank;
+	private static final int SUPPLY_DEPTH = 4;
+	private PuzzleSupply supply;
+	private static final Path SNAPSHOT = Paths.get("sudoku.snapshot");
+	private static final Path JOURNAL = Paths.get("sudoku.journal");
+	private Journal journal;
+	private int level = 1;
+	private ActiveRenderer renderer;
+	private BufferedImage layer;
+	private boolean layerValid;
+	private boolean drawnOnce;
+	private boolean puzzleDrawn;
+	private static final boolean EXIT_AFTER_STARTUP = Boolean.getBoolean("sudoku.exitAfterStartup");
 	
 	/**
 	 * Game constructor instantiates window, all objects and selects a
-	 * medium level puzzle by default
+	 * medium level puzzle by default. The window is shown with an empty
+	 * board straight away, and the first puzzle is swapped in once
+	 * it has been made
 	 */
 	public Game()
 	{
+		this(Board.ORDER);
+	}
+	
+	/**
+	 * Same as above, but for a board of any order. Each extra row of
+	 * number buttons moves the buttons below it down and makes the
+	 * window taller
+	 * @param someOrder: 3 for 9x9, 4 for 16x16, 5 for 25x25
+	 */
+	public Game(int someOrder)
+	{
+		order = someOrder;
+		int size = order * order;
+		
 		setTitle("Sudoku");
 		setLocation(100, 100);
-		setSize(600, 730);
+		setSize(600, 730 + shift(size));
 		setBackground(Color.GRAY);
 
-		// allow window to close
-		myWindow = new Window();
+		// allow window to close, stopping the frame loop and saving the game first
+		myWindow = new Window(new Runnable()
+		{
+			public void run()
+			{
+				if (renderer != null) renderer.stop();
+				saveGame();
+			}
+		});
 		addWindowListener(myWindow);
 		
-		myPuzzle = new Puzzle(100, 140, 1);
-		easy = new Chooser(100, 70, 50, 120, "Easy", 18);
-		medium = new Chooser(240, 70, 50, 120, "Medium", 18);
-		hard = new Chooser(380, 70, 50, 120, "Hard", 18);
+		// an empty board to show until the first puzzle is ready
+		myPuzzle = Puzzle.empty(100, 140, order);
+		Chooser[] buttons = buttons(size);
+		easy = buttons[0];
+		medium = buttons[1];
+		hard = buttons[2];
+		clear = buttons[3];
+		hint = buttons[4];
+		reset = buttons[5];
+		numbers = new Chooser[size];
+		System.arraycopy(buttons, 6, numbers, 0, size);
 		
 		// medium button selected by default
 		medium.select();
 		
-		// get arrays for userGrid and answerGrid
-		answerGrid = myPuzzle.grid.answerGrid;
-		userGrid = myPuzzle.grid.grid;
-		
-		// start our timer by getting current system time
-		start = System.currentTimeMillis();
-		
-		// create number bar buttons
-		one = new Chooser (100, 560, WIDTH, WIDTH, "1", 16);
-		two = new Chooser (140, 560, WIDTH, WIDTH, "2", 16);
-		three = new Chooser (180, 560, WIDTH, WIDTH, "3", 16);
-		four = new Chooser (220, 560, WIDTH, WIDTH, "4", 16);
-		five = new Chooser (260, 560, WIDTH, WIDTH, "5", 16);
-		six = new Chooser (300, 560, WIDTH, WIDTH, "6", 16);
-		seven = new Chooser (340, 560, WIDTH, WIDTH, "7", 16);
-		eight = new Chooser (380, 560, WIDTH, WIDTH, "8", 16);
-		nine = new Chooser (420, 560, WIDTH, WIDTH, "9", 16);
-		clear = new Chooser (460, 560, WIDTH, 40, "Clear", 10);
-		
-		hint = new Chooser(170, 620, 50, 120, "Hint!", 20);
-		reset = new Chooser(310, 620, 50, 120, "Reset", 20);
-		
-		// create background image
-		img = Toolkit.getDefaultToolkit().createImage("background.jpg");
-		
 		addMouseListener(this);
+		addKeyListener(new KeyAdapter()
+		{
+			public void keyPressed(KeyEvent e)
+			{
+				if (model == null || !(e.isControlDown() || e.isMetaDown())) return;
+				if (e.getKeyCode() == KeyEvent.VK_Z && !e.isShiftDown()) undoMove();
+				else if (e.getKeyCode() == KeyEvent.VK_Y || e.getKeyCode() == KeyEvent.VK_Z) redoMove();
+			}
+		});
 		setVisible(true);
+		Startup.mark("window shown");
+		
+		// draw with a frame loop instead of paint if asked to
+		if (Boolean.getBoolean("sudoku.active"))
+		{
+			renderer = new ActiveRenderer(this, Integer.getInteger("sudoku.fps", 60));
+			renderer.start();
+		}
+		
+		loadFirstPuzzle();
 	}
 	
 	/**
-	 * Paint method will draw all objects
+	 * Lays out the buttons for a board with a number of digits, shared
+	 * with anything that needs to paint the same buttons as the game
+	 * @param size: number of digits
+	 * @return the easy, medium, hard, clear, hint and reset buttons, then
+	 *   the number bar buttons from 1 to size, none of them selected
+	 */
+	static Chooser[] buttons(int size)
+	{
+		int shift = shift(size);
+		Chooser[] buttons = new Chooser[6 + size];
+		buttons[0] = new Chooser(100, 70, 50, 120, "Easy", 18);
+		buttons[1] = new Chooser(240, 70, 50, 120, "Medium", 18);
+		buttons[2] = new Chooser(380, 70, 50, 120, "Hard", 18);
+		buttons[3] = new Chooser (460, 560 + shift, WIDTH, 40, "Clear", 10);
+		buttons[4] = new Chooser(170, 620 + shift, 50, 120, "Hint!", 20);
+		buttons[5] = new Chooser(310, 620 + shift, 50, 120, "Reset", 20);
+		
+		// the number bar, in rows of 9
+		for (int v = 1; v <= size; v++)
+		{
+			int column = (v - 1) % 9, row = (v - 1) / 9;
+			buttons[5 + v] = new Chooser (100 + 40 * column, 560 + 40 * row, WIDTH, WIDTH, Theme.DIGITS[v], 16);
+		}
+		return buttons;
+	}
+	
+	/**
+	 * @param size: number of digits
+	 * @return how far each extra row of number buttons moves the buttons
+	 *   below it down
+	 */
+	private static int shift(int size)
+	{
+		return 40 * ((size - 1) / 9);
+	}
+	
+	/**
+	 * Opens the puzzle bank, starts the puzzle supply and either resumes
+	 * the saved game or makes the first medium puzzle, all on a thread of
+	 * its own, then hands them to the event thread, which shows the puzzle
+	 * in place of the empty board. The bank only holds classic puzzles,
+	 * so it is only opened for them. A finished game is not resumed
+	 */
+	private void loadFirstPuzzle()
+	{
+		Thread loader = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				// open the puzzle bank if one has been created
+				PuzzleBank opened = null;
+				try
+				{
+					if (order == Board.ORDER && Files.exists(BANK)) opened = new PuzzleBank(BANK);
+				}
+				catch (IOException e)
+				{
+					System.err.println("Could not open " + BANK + ": " + e.getMessage());
+				}
+				final PuzzleBank firstBank = opened;
+				final PuzzleSupply firstSupply = new PuzzleSupply(firstBank, order, SUPPLY_DEPTH);
+				
+				// pick up the saved game if there is one
+				Journal saved = null;
+				boolean found = false;
+				try
+				{
+					saved = new Journal(SNAPSHOT, JOURNAL);
+					found = saved.resume(order) && !saved.getModel().isSolved();
+				}
+				catch (IOException e)
+				{
+					System.err.println("Could not resume the saved game: " + e.getMessage());
+				}
+				final Journal firstJournal = saved;
+				final boolean resumed = found;
+				final Grid first = resumed ? null : firstSupply.take(1);
+				Startup.mark(resumed ? "saved game resumed" : "first puzzle made");
+				
+				EventQueue.invokeLater(new Runnable()
+				{
+					public void run()
+					{
+						bank = firstBank;
+						supply = firstSupply;
+						journal = firstJournal;
+						if (resumed) resumePuzzle();
+						else showPuzzle(first);
+						repaint(myPuzzle.getBounds());
+					}
+				});
+			}
+		}, "puzzle-loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+	
+	/**
+	 * The background image covers the whole window, so there is no need
+	 * to clear it first the way Frame does by default
+	 */
+	public void update(Graphics g)
+	{
+		paint(g);
+	}
+	
+	/**
+	 * Paint method will draw all objects, unless the active renderer
+	 * is drawing the window, in which case it is asked for a new frame
 	 */
 	public void paint(Graphics g)
 	{
-		// draw our background image
-		g.drawImage(img, 0, 0, null);
+		if (renderer != null) renderer.markDirty();
+		else render(g);
+	}
+	
+	/**
+	 * Draws all objects. Usually only part of the window needs
+	 * repainting, so everything outside the clip area is skipped
+	 * @param g
+	 */
+	void render(Graphics g)
+	{
+		// draw the background, puzzle grid and givens, which rarely change
+		if (!layerValid || layer.getWidth() != getWidth() || layer.getHeight() != getHeight())
+		{
+			drawLayer();
+		}
+		g.drawImage(layer, 0, 0, null);
 		
+		// then the user's numbers and the buttons on top
 		myPuzzle.paint(g);
 		
 		easy.paint(g);
 		medium.paint(g);
 		hard.paint(g);
 		
-		one.paint(g);
-		two.paint(g);
-		three.paint(g);
-		four.paint(g);
-		five.paint(g);
-		six.paint(g);
-		seven.paint(g);
-		eight.paint(g);
-		nine.paint(g);
+		for (int v = 0; v < numbers.length; v++)
+		{
+			numbers[v].paint(g);
+		}
 		clear.paint(g);
 		
 		hint.paint(g);
 		reset.paint(g);
+		
+		if (!drawnOnce)
+		{
+			drawnOnce = true;
+			Startup.mark("first complete frame");
+		}
+		if (!puzzleDrawn && model != null)
+		{
+			puzzleDrawn = true;
+			Startup.mark("first puzzle drawn");
+			if (EXIT_AFTER_STARTUP) System.exit(0);
+		}
+	}
+	
+	/**
+	 * Starts a new puzzle, taken from the puzzle supply
+	 * @param difficulty: 0 for easy, 1 for medium, 2 for hard
+	 */
+	private void newPuzzle(int difficulty)
+	{
+		level = difficulty;
+		showPuzzle(supply.take(difficulty));
+	}
+	
+	/**
+	 * Shows a new puzzle and starts saving it
+	 * @param someGrid: grid with blanks to play
+	 */
+	private void showPuzzle(Grid someGrid)
+	{
+		// the user starts from the puzzle's givens
+		showPuzzle(someGrid, new GameModel(someGrid));
+		if (journal != null) journal.start(someGrid, level, model);
+	}
+	
+	/**
+	 * Shows the game the journal resumed, with the user's numbers, time
+	 * and hints as they were, and its difficulty selected
+	 */
+	private void resumePuzzle()
+	{
+		level = journal.getDifficulty();
+		showPuzzle(journal.getGrid(), journal.getModel());
+		for (int i = 0; i < myPuzzle.cellCount(); i++)
+		{
+			myPuzzle.updateValue(i, model.get(i));
+		}
+		start = System.currentTimeMillis() - journal.getElapsed();
+		hintCounter = journal.getHints();
+		
+		Chooser[] levels = {easy, medium, hard};
+		for (int d = 0; d < levels.length; d++)
+		{
+			if (d == level) levels[d].select();
+			else levels[d].unselect();
+			repaint(levels[d]);
+		}
+	}
+	
+	/**
+	 * Shows a puzzle and restarts the timer and hint count. The puzzle's
+	 * ID goes in the title, so the same puzzle can be made again
+	 * @param someGrid: grid with blanks to play
+	 * @param someModel: the user's progress on it
+	 */
+	private void showPuzzle(Grid someGrid, GameModel someModel)
+	{
+		myPuzzle = new Puzzle(100, 140, someGrid);
+		if (someGrid.hasId())
+		{
+			setTitle("Sudoku #" + Long.toHexString(someGrid.getId()));
+			hintSeed = someGrid.getId();
+		}
+		else
+		{
+			setTitle("Sudoku");
+			hintSeed = new SplittableRandom().nextLong();
+		}
+		
+		model = someModel;
+		layerValid = false;
+		
+		// start our timer by getting current system time
+		start = System.currentTimeMillis();
+		hintCounter = 0;
+	}
+	
+	/**
+	 * Draws everything that stays the same until there is a new puzzle
+	 * into the layer image: the background image and the puzzle's border,
+	 * shades, boxes and givens. This is where the first frame waits for
+	 * the background image to finish decoding
+	 */
+	private void drawLayer()
+	{
+		if (layer == null || layer.getWidth() != getWidth() || layer.getHeight() != getHeight())
+		{
+			layer = getGraphicsConfiguration().createCompatibleImage(getWidth(), getHeight());
+		}
+		
+		Graphics g = layer.getGraphics();
+		g.setColor(getBackground());
+		g.fillRect(0, 0, getWidth(), getHeight());
+		BufferedImage background = Resources.background();
+		if (background != null) g.drawImage(background, 0, 0, null);
+		myPuzzle.paintLayer(g);
+		g.dispose();
+		
+		layerValid = true;
 	}
 	
 	/**
@@ -129,31 +426,109 @@ public class Game extends Frame implements MouseListener
 	 */
 	private void clearNumSelect()
 	{
-		one.unselect();
-		two.unselect();
-		three.unselect();
-		four.unselect();
-		five.unselect();
-		six.unselect();
-	    seven.unselect();
-		eight.unselect();
-		nine.unselect();
-		clear.unselect();
+		for (int v = 0; v < numbers.length; v++)
+		{
+			unselect(numbers[v]);
+		}
+		unselect(clear);
 	}
 	
 	/**
-	 * Clears all user-entered values from a puzzle grid
+	 * Unselects a button, repainting it only if it was selected
+	 * @param button
+	 */
+	private void unselect(Chooser button)
+	{
+		if (button.isSelected())
+		{
+			button.unselect();
+			repaint(button);
+		}
+	}
+	
+	/**
+	 * Repaints only the area covered by a button
+	 * @param button
+	 */
+	private void repaint(Chooser button)
+	{
+		repaint(button.getBounds());
+	}
+	
+	/**
+	 * Repaints only part of the window, the rest is left as it is
+	 * @param area
+	 */
+	private void repaint(Rectangle area)
+	{
+		if (renderer != null) renderer.markDirty();
+		else repaint(area.x, area.y, area.width, area.height);
+	}
+	
+	/**
+	 * Clears all user-entered values from a puzzle grid, and restarts
+	 * the timer and hint count
 	 * The called updateValue method will ensure the default values remain
 	 */
 	private void resetGame()
 	{
-		for (int j = 0; j < 9; j++)
+		model.reset();
+		for (int i = 0; i < myPuzzle.cellCount(); i++)
 		{
-			for (int k = 0; k < 9; k++)
-			{
-				myPuzzle.updateValue(j, k, 0);
-			}
+			myPuzzle.updateValue(i, 0);
 		}
+		start = System.currentTimeMillis();
+		hintCounter = 0;
+		record(Journal.RESET, 0, 0);
+	}
+	
+	/**
+	 * Takes back the last move, if there is one
+	 */
+	private void undoMove()
+	{
+		int cell = model.undo();
+		if (cell < 0) return;
+		
+		myPuzzle.updateValue(cell, model.get(cell));
+		record(Journal.UNDO, cell, model.get(cell));
+		repaint(myPuzzle.cellBounds(cell));
+	}
+	
+	/**
+	 * Makes the last undone move again, if there is one
+	 */
+	private void redoMove()
+	{
+		int cell = model.redo();
+		if (cell < 0) return;
+		
+		myPuzzle.updateValue(cell, model.get(cell));
+		record(Journal.REDO, cell, model.get(cell));
+		repaint(myPuzzle.cellBounds(cell));
+		checkWinner();
+	}
+	
+	/**
+	 * Saves a move that has just been made, along with the time played
+	 * @param kind: one of the Journal record kinds
+	 * @param cell
+	 * @param value
+	 */
+	private void record(int kind, int cell, int value)
+	{
+		if (journal != null) journal.record(kind, cell, value, System.currentTimeMillis() - start);
+	}
+	
+	/**
+	 * Saves the time played and writes out everything not yet saved,
+	 * called as the window closes
+	 */
+	private void saveGame()
+	{
+		if (journal == null) return;
+		record(Journal.PAUSE, 0, 0);
+		journal.close();
 	}
 	
 	/**
@@ -164,54 +539,50 @@ public class Game extends Frame implements MouseListener
 	 */
 	private void getBox(int a, int b)
 	{
-		int boxX, boxY;
-		a = a - 110;
-		b = b - 150;
-		boxX = a / 43;
-		boxY = b / 43;
-		
-		// updates value within myPuzzle and within userGrid
-		myPuzzle.updateValue(boxX, boxY, mouseVal);
-		userGrid[boxX][boxY] = mouseVal;
+		int cell = myPuzzle.cellAt(a, b);
+		
+		// clicks on the puzzle's outer border are not in any box
+		if (cell < 0) return;
+		
+		// updates value within myPuzzle and within the model
+		if (!model.play(cell, mouseVal)) return;
+		myPuzzle.updateValue(cell, mouseVal);
+		record(Journal.PLAY, cell, mouseVal);
+		repaint(myPuzzle.cellBounds(cell));
 	}
 	
 	/**
 	 * Finds a random box on the grid and fills in it's correct value,
-	 * then updates userGrid with that value
+	 * then updates the model with that value. Only a hint that was
+	 * filled in and recorded is counted, so the count matches the
+	 * journal's on resume
 	 */
 	private void fillHint()
 	{
-		int a, b;
-		
-		// find a box that has not already been filled
-		do {
-			a = (int)(Math.random() * 9);
-			b = (int)(Math.random() * 9);
-		} while(userGrid[a][b] != 0);
-		
-		myPuzzle.updateValue(a, b, answerGrid[a][b]);
-		userGrid[a][b] = answerGrid[a][b];
-		repaint();
+		// nothing to fill in if no boxes are blank
+		if (model.blankCount() == 0) return;
+		
+		// pick a random box that has not already been filled
+		SplittableRandom pick = new SplittableRandom(hintSeed + hintCounter);
+		int cell = model.blankCell(pick.nextInt(model.blankCount()));
+		
+		int answer = model.answer(cell);
+		if (!model.play(cell, answer)) return;
+		myPuzzle.updateValue(cell, answer);
+		hintCounter++;
+		record(Journal.HINT, cell, answer);
+		repaint(myPuzzle.cellBounds(cell));
 		checkWinner();
 	}
 	
 	/**
-	 * Compares each value of userGrid with answerGrid to determine
+	 * Asks the model if every cell is correct to determine
 	 * if the puzzle is completed, show dialog if winner
 	 */
 	private void checkWinner()
 	{
-		// default value of winner is true
-		boolean winner = true;
-		
-		// if any value is not correct, winner is false
-		for (int x = 0; x < 9; x++)
-		{
-			for (int y = 0; y < 9; y++)
-			{
-				if (userGrid[y][x] != answerGrid[y][x]) winner = false;
-			}
-		}
+		// the model keeps count of correct cells as they change
+		boolean winner = model.isSolved();
 		
 		// show dialog if it is a winner
 		if (winner)
@@ -222,8 +593,7 @@ public class Game extends Frame implements MouseListener
 			
 			// call method to format the time
 			String time = formatTime(elapsed);
-			hint.unselect();
-			repaint();
+			unselect(hint);
 			
 			// show winner dialog box
 			JOptionPane.showMessageDialog(null,
@@ -232,6 +602,15 @@ public class Game extends Frame implements MouseListener
 		}
 	}
 	
+	/**
+	 * Accessor for how much of the puzzle the user has right
+	 * @return fraction of correct cells, from 0 to 1
+	 */
+	public double getProgress()
+	{
+		return model == null ? 0 : model.getProgress();
+	}
+	
 	/**
 	 * Receives a long value of total seconds of time
 	 * @param time
@@ -273,133 +652,65 @@ public class Game extends Frame implements MouseListener
 		x = e.getX();
 		y = e.getY();
 		
-		if (myPuzzle.isInside(x, y))
+		// only the number bar works until the first puzzle is ready
+		boolean ready = model != null;
+		
+		if (ready && myPuzzle.isInside(x, y))
 		{
 			getBox(x, y);
-			repaint();
 			checkWinner();
 		}
 		
-		if (one.isInside(x, y))
-		{
-			clearNumSelect();
-			one.select();
-			repaint();
-			mouseVal = 1;
-		}
-		
-		if (two.isInside(x, y))
-		{
-			clearNumSelect();
-			two.select();
-			repaint();
-			mouseVal = 2;
-		}
-		
-		if (three.isInside(x, y))
-		{
-			clearNumSelect();
-			three.select();
-			repaint();
-			mouseVal = 3;
-		}
-		
-		if (four.isInside(x, y))
+		for (int v = 1; v <= numbers.length; v++)
 		{
-			clearNumSelect();
-			four.select();
-			repaint();
-			mouseVal = 4;
-		}
-		
-		if (five.isInside(x, y))
-		{
-			clearNumSelect();
-			five.select();
-			repaint();
-			mouseVal = 5;
-		}
-		
-		if (six.isInside(x, y))
-		{
-			clearNumSelect();
-			six.select();
-			repaint();
-			mouseVal = 6;
-		}
-		
-		if (seven.isInside(x, y))
-		{
-			clearNumSelect();
-			seven.select();
-			repaint();
-			mouseVal = 7;
-		}
-		
-		if (eight.isInside(x, y))
-		{
-			clearNumSelect();
-			eight.select();
-			repaint();
-			mouseVal = 8;
-		}
-		
-		if (nine.isInside(x, y))
-		{
-			clearNumSelect();
-			nine.select();
-			repaint();
-			mouseVal = 9;
+			if (numbers[v - 1].isInside(x, y))
+			{
+				clearNumSelect();
+				numbers[v - 1].select();
+				repaint(numbers[v - 1]);
+				mouseVal = v;
+			}
 		}
 		
-		if (easy.isInside(x, y))
+		if (ready && easy.isInside(x, y))
 		{
 			// if easy is already selected, do nothing
 			if (!easy.isSelected())
 			{
-				myPuzzle = new Puzzle(100, 140, 0);
-				answerGrid = myPuzzle.grid.answerGrid;
-				userGrid = myPuzzle.grid.grid;
-				start = System.currentTimeMillis();
-				hintCounter = 0;
+				newPuzzle(0);
 				easy.select();
-				medium.unselect();
-				hard.unselect();
-				repaint();
+				repaint(easy);
+				unselect(medium);
+				unselect(hard);
+				repaint(myPuzzle.getBounds());
 			}
 		}
 		
-		if (medium.isInside(x, y))
+		if (ready && medium.isInside(x, y))
 		{
 			// if medium is already selected, do nothing
 			if (!medium.isSelected())
 			{
-				myPuzzle = new Puzzle(100, 140, 1);
-				answerGrid = myPuzzle.grid.answerGrid;
-				userGrid = myPuzzle.grid.grid;
-				start = System.currentTimeMillis();
-				hintCounter = 0;
-				easy.unselect();
+				newPuzzle(1);
 				medium.select();
-				hard.unselect();
-				repaint();
+				repaint(medium);
+				unselect(easy);
+				unselect(hard);
+				repaint(myPuzzle.getBounds());
 			}
 		}
 		
-		if (hard.isInside(x, y))
+		if (ready && hard.isInside(x, y))
 		{
 			// if hard is already selected, do nothing
 			if (!hard.isSelected())
 			{
-				myPuzzle = new Puzzle(100, 140, 2);
-				answerGrid = myPuzzle.grid.answerGrid;
-				userGrid = myPuzzle.grid.grid;
-				start = System.currentTimeMillis();
-				hintCounter = 0;
-				easy.unselect();
-				medium.unselect();
+				newPuzzle(2);
 				hard.select();
-				repaint();
+				repaint(hard);
+				unselect(easy);
+				unselect(medium);
+				repaint(myPuzzle.getBounds());
 			}
 		}
 		
@@ -407,25 +718,23 @@ public class Game extends Frame implements MouseListener
 		{
 			clearNumSelect();
 			clear.select();
-			repaint();
+			repaint(clear);
 			mouseVal = 0;
 		}
 		
-		if (reset.isInside(x, y))
+		if (ready && reset.isInside(x, y))
 		{
 			resetGame();
-			start = System.currentTimeMillis();
-			hintCounter = 0;
 			reset.select();
-			repaint();
+			repaint(reset);
+			repaint(myPuzzle.getBounds());
 		}
 		
-		if (hint.isInside(x, y))
+		if (ready && hint.isInside(x, y))
 		{
 			hint.select();
-			hintCounter++;
+			repaint(hint);
 			fillHint();
-			repaint();
 		}
 	}
 	
@@ -436,14 +745,12 @@ public class Game extends Frame implements MouseListener
 	{
 		if (reset.isInside(x, y))
 		{
-			reset.unselect();
-			repaint();
+			unselect(reset);
 		}
 		
 		if (hint.isInside(x, y))
 		{
-			hint.unselect();
-			repaint();
+			unselect(hint);
 		}
 	}
 	
@@ -0,0 +1,252 @@
+/**
+ * @author Adam Jilling
+ *
+ * Holds the state of the game being played: the user's board, the
+ * answer key, and a running count of how many cells are filled in and how
+ * many of those are correct. Every change updates the counts directly, so
+ * finding out whether the puzzle is finished never needs a scan of the board.
+ * The blank cells are kept in a CellSet so a random one can be picked
+ * directly. Moves made with play go in a history that undo and redo walk
+ * back and forth through, one move each in constant time.
+ */
+
+import java.util.Arrays;
+
+public class GameModel
+{
+	/**
+	 * puzzle: the givens, which can't be changed
+	 * answer: the answer key
+	 * user: the user's board, starting from the givens
+	 * filled: number of non-blank cells on the user's board
+	 * correct: number of cells on the user's board matching the answer
+	 * blanks: the blank cells of the user's board
+	 * history: every move played since the last reset, each packed as
+	 *   cell << 16 | old value << 8 | new value
+	 * position: number of moves in effect, the ones after it were undone
+	 *   and can be redone
+	 * moves: number of moves in history
+	 */
+	private final Board puzzle;
+	private final Board answer;
+	private final Board user;
+	private int filled, correct;
+	private final CellSet blanks;
+	private int[] history = new int[64];
+	private int position, moves;
+
+	/**
+	 * Constructor starts a game from a grid's givens
+	 * @param grid: grid with blanks and its answer key
+	 */
+	public GameModel(Grid grid)
+	{
+		puzzle = grid.grid;
+		answer = grid.answerGrid;
+		user = new Board(puzzle);
+		blanks = new CellSet(user.cellCount());
+
+		for (int i = 0; i < user.cellCount(); i++)
+		{
+			if (user.get(i) != 0) filled++;
+			else blanks.add(i);
+			if (user.get(i) == answer.get(i)) correct++;
+		}
+	}
+
+	/**
+	 * Changes one cell of the user's board, givens are left alone
+	 * @param i: cell index
+	 * @param value: new value, 0 for blank
+	 * @return true if the cell could be changed
+	 */
+	public boolean set(int i, int value)
+	{
+		if (isGiven(i)) return false;
+
+		int old = user.get(i);
+		if (old != 0) filled--;
+		if (old == answer.get(i)) correct--;
+
+		user.set(i, value);
+		if (value != 0)
+		{
+			filled++;
+			blanks.remove(i);
+		}
+		else blanks.add(i);
+		if (value == answer.get(i)) correct++;
+		return true;
+	}
+
+	/**
+	 * Makes a move that can be undone. Any moves that were undone can't
+	 * be redone after this
+	 * @param i: cell index
+	 * @param value: new value, 0 for blank
+	 * @return true if the cell changed
+	 */
+	public boolean play(int i, int value)
+	{
+		if (isGiven(i) || user.get(i) == value) return false;
+
+		if (position == history.length) history = Arrays.copyOf(history, 2 * history.length);
+		history[position++] = i << 16 | user.get(i) << 8 | value;
+		moves = position;
+		set(i, value);
+		return true;
+	}
+
+	/**
+	 * Takes back the last move in effect
+	 * @return cell index of the move, -1 if there was none
+	 */
+	public int undo()
+	{
+		if (position == 0) return -1;
+
+		int move = history[--position];
+		set(move >>> 16, (move >> 8) & 0xFF);
+		return move >>> 16;
+	}
+
+	/**
+	 * Makes the last undone move again
+	 * @return cell index of the move, -1 if there was none
+	 */
+	public int redo()
+	{
+		if (position == moves) return -1;
+
+		int move = history[position++];
+		set(move >>> 16, move & 0xFF);
+		return move >>> 16;
+	}
+
+	/**
+	 * @return number of moves in the history, undone ones included
+	 */
+	public int moveCount()
+	{
+		return moves;
+	}
+
+	/**
+	 * @return number of moves in effect
+	 */
+	public int movePosition()
+	{
+		return position;
+	}
+
+	/**
+	 * Gets a move from the history. Playing every move from the start of
+	 * the history and then undoing the ones after movePosition() rebuilds
+	 * the same board and history
+	 * @param k: from 0 to moveCount() - 1
+	 * @return the move, cell << 16 | old value << 8 | new value
+	 */
+	public int move(int k)
+	{
+		return history[k];
+	}
+
+	/**
+	 * Blanks every cell that isn't a given and clears the history
+	 */
+	public void reset()
+	{
+		for (int i = 0; i < user.cellCount(); i++)
+		{
+			set(i, 0);
+		}
+		position = 0;
+		moves = 0;
+	}
+
+	/**
+	 * @return number of cells on the board
+	 */
+	public int cellCount()
+	{
+		return user.cellCount();
+	}
+
+	/**
+	 * @param i: cell index
+	 * @return value on the user's board, 0 if blank
+	 */
+	public int get(int i)
+	{
+		return user.get(i);
+	}
+
+	/**
+	 * @param i: cell index
+	 * @return correct value of the cell
+	 */
+	public int answer(int i)
+	{
+		return answer.get(i);
+	}
+
+	/**
+	 * @param i: cell index
+	 * @return true if the cell is part of the puzzle and can't be changed
+	 */
+	public boolean isGiven(int i)
+	{
+		return puzzle.get(i) != 0;
+	}
+
+	/**
+	 * @return number of blank cells on the user's board
+	 */
+	public int blankCount()
+	{
+		return blanks.size();
+	}
+
+	/**
+	 * Picks a blank cell, a uniformly random slot gives a uniformly
+	 * random blank cell
+	 * @param slot: from 0 to blankCount() - 1
+	 * @return cell index
+	 */
+	public int blankCell(int slot)
+	{
+		return blanks.get(slot);
+	}
+
+	/**
+	 * @return true once every cell matches the answer key
+	 */
+	public boolean isSolved()
+	{
+		return correct == user.cellCount();
+	}
+
+	/**
+	 * @return number of cells matching the answer key, givens included
+	 */
+	public int getCorrect()
+	{
+		return correct;
+	}
+
+	/**
+	 * @return number of filled cells that don't match the answer key
+	 */
+	public int getIncorrect()
+	{
+		return filled - correct;
+	}
+
+	/**
+	 * @return fraction of the board that is correct, from 0 to 1
+	 */
+	public double getProgress()
+	{
+		return (double)correct / user.cellCount();
+	}
+}
@@ -0,0 +1,378 @@
+/**
+ * @author Adam Jilling
+ *
+ * Does the random work of building a grid: shuffling a full grid and
+ * removing numbers to turn it into a puzzle. Each generator has its own
+ * random number source, solver, grader and scratch arrays so it can be reused for
+ * any number of grids, but it must only be used by one thread at a time.
+ * Every puzzle is built from a 64-bit ID: seed(id) starts a fresh random
+ * stream from the ID alone, so the same ID always gives the same grid and
+ * blanks, whichever generator or thread builds it. The generator's own
+ * source only picks new IDs.
+ * Grids of any board order can be built, though only classic 9x9 ones can
+ * be graded.
+ * Threads that don't bring their own generator share a per-thread one
+ * through local().
+ */
+
+import java.util.SplittableRandom;
+
+public class Generator
+{
+	/**
+	 * LOCAL: one generator per thread for grids built without a generator
+	 * seeds: source of new puzzle IDs
+	 * random: source of the random choices for the current puzzle, seeds
+	 *   until the first call to seed
+	 * ATTEMPTS: number of puzzles fillGradedBlanks tries before settling
+	 *   for the closest one, and of removal orders fillBlanks tries before
+	 *   settling for the one with the most blanks
+	 * solver: checks that a puzzle still has a unique solution
+	 * grader: rates puzzles for fillGradedBlanks
+	 * cols, rows, bands: scratch permutations for shuffle, sized for the
+	 *   largest board
+	 * digits: scratch digit relabeling for shuffle
+	 * order: scratch digit order for shuffle
+	 * untried: scratch set of cells fillBlanks may still blank, one for
+	 *   each board order, made on first use
+	 * scratch: copy of the grid being shuffled, one for each board order
+	 * best: closest puzzle found so far by fillGradedBlanks
+	 * partial: puzzle with the most blanks found so far by fillBlanks, one
+	 *   for each board order, made on first use
+	 */
+	private static final ThreadLocal<Generator> LOCAL = new ThreadLocal<Generator>()
+	{
+		protected Generator initialValue()
+		{
+			return new Generator(new SplittableRandom());
+		}
+	};
+
+	private final SplittableRandom seeds;
+	private SplittableRandom random;
+	private static final int ATTEMPTS = 20;
+	private final BitmaskSolver solver = new BitmaskSolver();
+	private final Grader grader = new Grader();
+	private final int[] cols = new int[Board.MAX_ORDER * Board.MAX_ORDER];
+	private final int[] rows = new int[Board.MAX_ORDER * Board.MAX_ORDER];
+	private final int[] bands = new int[Board.MAX_ORDER];
+	private final int[] digits = new int[Board.MAX_ORDER * Board.MAX_ORDER + 1];
+	private final int[] order = new int[Board.MAX_ORDER * Board.MAX_ORDER];
+	private final CellSet[] untried = new CellSet[Board.MAX_ORDER + 1];
+	private final Board[] scratch = new Board[Board.MAX_ORDER + 1];
+	private final Board best = new Board();
+	private final Board[] partial = new Board[Board.MAX_ORDER + 1];
+
+	/**
+	 * Constructor
+	 * @param someSeeds: random source used only by this generator, to
+	 *   pick puzzle IDs
+	 */
+	public Generator(SplittableRandom someSeeds)
+	{
+		seeds = someSeeds;
+		random = someSeeds;
+	}
+
+	/**
+	 * Picks an ID for a new puzzle
+	 * @return any 64-bit value
+	 */
+	public long nextId()
+	{
+		return seeds.nextLong();
+	}
+
+	/**
+	 * Accessor for the source of puzzle IDs, for other random choices
+	 * made by the thread using the generator, such as picking a puzzle
+	 * from a bank
+	 * @return random source
+	 */
+	public SplittableRandom seeds()
+	{
+		return seeds;
+	}
+
+	/**
+	 * Starts a new puzzle. Every random choice from here until the next
+	 * call comes from the puzzle's ID and nothing else
+	 * @param id: puzzle ID
+	 */
+	public void seed(long id)
+	{
+		random = new SplittableRandom(id);
+	}
+
+	/**
+	 * Accessor for this generator's grader, only from the thread
+	 * using the generator
+	 * @return grader
+	 */
+	public Grader grader()
+	{
+		return grader;
+	}
+
+	/**
+	 * Accessor for the generator of the current thread
+	 * @return generator owned by the calling thread
+	 */
+	public static Generator local()
+	{
+		return LOCAL.get();
+	}
+
+	/**
+	 * Gets the scratch set of cells for boards of an order
+	 * @param n: board order
+	 * @return set that can hold every cell of such a board
+	 */
+	private CellSet untried(int n)
+	{
+		if (untried[n] == null) untried[n] = new CellSet(n * n * n * n);
+		return untried[n];
+	}
+
+	/**
+	 * Applies one random member of the validity-preserving transformations
+	 * to a full grid: the bands and stacks of boxes are reordered, the rows
+	 * within each band and columns within each stack are reordered, the
+	 * digits are relabeled and the whole grid is optionally transposed.
+	 * Every one of these keeps a valid grid valid. For a board of order n
+	 * they are the board's whole symmetry group: (n!)^(2n + 2) orders of the
+	 * lines, (n * n)! relabelings and the transpose, so every grid that is
+	 * a symmetric copy of the one passed in can come out, in one pass over
+	 * the board whatever the order
+	 * @param grid: valid full grid of any order, shuffled in place
+	 */
+	public void shuffle(Board grid)
+	{
+		int n = grid.order(), size = grid.size();
+
+		// new column a takes old column cols[a], new row b takes old row rows[b]
+		permutation(cols, n);
+		permutation(rows, n);
+
+		// digits[v] is the new label for digit v, index 0 stays blank
+		for (int i = 0; i < size; i++)
+		{
+			order[i] = i + 1;
+		}
+		shuffle(order, 0, size);
+		for (int i = 0; i < size; i++)
+		{
+			digits[i + 1] = order[i];
+		}
+
+		boolean transpose = random.nextBoolean();
+
+		// build the transformed grid in one pass over a copy of the grid
+		if (scratch[n] == null) scratch[n] = new Board(n);
+		Board copy = scratch[n];
+		copy.copyFrom(grid);
+		for (int a = 0; a < size; a++)
+		{
+			for (int b = 0; b < size; b++)
+			{
+				int value = transpose ? copy.get(rows[b], cols[a]) : copy.get(cols[a], rows[b]);
+				grid.set(a, b, digits[value]);
+			}
+		}
+	}
+
+	/**
+	 * Creates a random ordering of the rows or columns that keeps each
+	 * band of n together, i.e. rows 0 through n - 1 stay next to each
+	 * other but that band may move anywhere and be reordered internally
+	 * @param result: filled so that entry i is the source of row or column i
+	 * @param n: board order, the number of bands and of lines in each
+	 */
+	private void permutation(int[] result, int n)
+	{
+		for (int band = 0; band < n; band++)
+		{
+			bands[band] = band;
+		}
+		shuffle(bands, 0, n);
+
+		for (int band = 0; band < n; band++)
+		{
+			for (int i = 0; i < n; i++)
+			{
+				result[band * n + i] = bands[band] * n + i;
+			}
+
+			// reorder the lines inside this band
+			shuffle(result, band * n, n);
+		}
+	}
+
+	/**
+	 * Fisher-Yates shuffle of a range of an array
+	 * @param values
+	 * @param from: first index of the range
+	 * @param length: number of entries to shuffle
+	 */
+	private void shuffle(int[] values, int from, int length)
+	{
+		for (int i = length - 1; i > 0; i--)
+		{
+			int j = random.nextInt(i + 1);
+			int temp = values[from + i];
+			values[from + i] = values[from + j];
+			values[from + j] = temp;
+		}
+	}
+
+	/**
+	 * Removes numbers from a full grid. In unique mode a number is only
+	 * removed if the puzzle still has exactly one solution afterwards, so
+	 * the answer key is the only correct way to finish it. If a removal order
+	 * runs out of cells before reaching BLANKS, the grid is restored from the
+	 * answer and another order tried. After ATTEMPTS orders that all fall
+	 * short, the one with the most blanks is kept
+	 * @param grid: full grid to blank in place
+	 * @param answer: copy of the full grid
+	 * @param BLANKS: number of blank cells to create
+	 * @param unique: true to keep the solution unique
+	 */
+	public void fillBlanks(Board grid, Board answer, int BLANKS, boolean unique)
+	{
+		if (!unique)
+		{
+			fillRandomBlanks(grid, BLANKS);
+			return;
+		}
+
+		int n = grid.order();
+		int most = -1;
+		for (int attempt = 0; attempt < ATTEMPTS; attempt++)
+		{
+			// start over from the full grid
+			grid.copyFrom(answer);
+			int blanks = fillUniqueBlanks(grid, BLANKS);
+			if (blanks == BLANKS) return;
+			if (blanks > most)
+			{
+				most = blanks;
+				if (partial[n] == null) partial[n] = new Board(n);
+				partial[n].copyFrom(grid);
+			}
+		}
+		grid.copyFrom(partial[n]);
+	}
+
+	/**
+	 * Blanks random cells without checking the number of solutions
+	 * @param grid
+	 * @param BLANKS
+	 */
+	private void fillRandomBlanks(Board grid, int BLANKS)
+	{
+		CellSet untried = untried(grid.order());
+		untried.fill();
+		for (int i = 0; i < BLANKS; i++)
+		{
+			// pick a random spot in the puzzle that is not already blank
+			int cell = untried.get(random.nextInt(untried.size()));
+			untried.remove(cell);
+
+			// make it blank, or zero
+			grid.set(cell, 0);
+		}
+	}
+
+	/**
+	 * Tries random cells one at a time, keeping each blank only if the
+	 * solver finds exactly one solution. The solver stops looking as soon
+	 * as it finds a second solution
+	 * @param grid
+	 * @param BLANKS
+	 * @return number of cells blanked, BLANKS unless the cells ran out first
+	 */
+	private int fillUniqueBlanks(Board grid, int BLANKS)
+	{
+		CellSet untried = untried(grid.order());
+		untried.fill();
+
+		int blanks = 0;
+		while (untried.size() > 0 && blanks < BLANKS)
+		{
+			// each cell is only tried once per attempt
+			int cell = untried.get(random.nextInt(untried.size()));
+			untried.remove(cell);
+			int value = grid.get(cell);
+
+			grid.set(cell, 0);
+			if (solver.countSolutions(grid, 2) == 1) blanks++;
+			else grid.set(cell, value);
+		}
+		return blanks;
+	}
+
+	/**
+	 * Removes numbers from a full grid until the grader rates the puzzle
+	 * at a difficulty. BLANKS cells are blanked by fillBlanks, or as many
+	 * as it manages, and then more cells are blanked one at a time
+	 * until the puzzle is hard enough. A blank that would make it too hard
+	 * is put back. If no puzzle reaches the difficulty within ATTEMPTS
+	 * tries, the closest one is kept. Only classic 9x9 grids can be graded
+	 * @param grid: full grid, blanked in place
+	 * @param answer: copy of the full grid
+	 * @param BLANKS: least number of blank cells
+	 * @param difficulty: 0 for easy, 1 for medium, 2 for hard, see
+	 *   Grader.difficulty
+	 */
+	public void fillGradedBlanks(Board grid, Board answer, int BLANKS, int difficulty)
+	{
+		int closest = Integer.MAX_VALUE;
+		for (int attempt = 0; attempt < ATTEMPTS; attempt++)
+		{
+			fillBlanks(grid, answer, BLANKS, true);
+
+			int distance = Math.abs(Grader.difficulty(deepen(grid, difficulty)) - difficulty);
+			if (distance == 0) return;
+			if (distance < closest)
+			{
+				closest = distance;
+				best.copyFrom(grid);
+			}
+		}
+		grid.copyFrom(best);
+	}
+
+	/**
+	 * Keeps blanking the cells fillUniqueBlanks didn't get to until the
+	 * puzzle reaches a difficulty, skipping any cell that would make the
+	 * solution not unique or the puzzle harder than the difficulty
+	 * @param grid: puzzle with a unique solution
+	 * @param difficulty
+	 * @return hardest technique the puzzle needs
+	 */
+	private int deepen(Board grid, int difficulty)
+	{
+		CellSet untried = untried(grid.order());
+		int technique = grader.grade(grid);
+		while (Grader.difficulty(technique) < difficulty && untried.size() > 0)
+		{
+			int cell = untried.get(random.nextInt(untried.size()));
+			untried.remove(cell);
+			int value = grid.get(cell);
+
+			grid.set(cell, 0);
+			if (solver.countSolutions(grid, 2) != 1)
+			{
+				grid.set(cell, value);
+				continue;
+			}
+
+			// too hard, put it back
+			int harder = grader.grade(grid);
+			if (Grader.difficulty(harder) > difficulty) grid.set(cell, value);
+			else technique = harder;
+		}
+		return technique;
+	}
+
+}
@@ -0,0 +1,536 @@
+/**
+ * @author Adam Jilling
+ *
+ * Grades a puzzle by solving it the way a person would, one logical step
+ * at a time, always using the easiest technique that makes progress. The
+ * grade is the hardest technique the puzzle needed, along with the number
+ * of steps it took. A puzzle that needs more than the techniques here is
+ * graded UNSOLVED. A grader holds all of its working memory, so it can be
+ * reused for any number of puzzles without allocating, but it is not safe
+ * to share one between threads. It only grades classic 9x9 boards. Cells
+ * are numbered as in Board.
+ */
+
+public class Grader
+{
+	/**
+	 * Techniques, from easiest to hardest:
+	 * HIDDEN_SINGLE: a digit fits in only one cell of a row, column or box
+	 * NAKED_SINGLE: a cell has only one candidate left
+	 * POINTING: a digit's candidates in a box all lie in one row or
+	 *   column, so the rest of that row or column can't have it
+	 * BOX_LINE: a digit's candidates in a row or column all lie in one
+	 *   box, so the rest of that box can't have it
+	 * NAKED_PAIR, NAKED_TRIPLE: 2 or 3 cells of a unit have only 2 or 3
+	 *   candidates between them, so the rest of the unit can't have them
+	 * HIDDEN_PAIR, HIDDEN_TRIPLE: 2 or 3 digits fit in only 2 or 3 cells
+	 *   of a unit, so those cells can't have any other candidate
+	 * X_WING: a digit fits in the same two columns of two rows, or the
+	 *   same two rows of two columns, so the rest of those can't have it
+	 * UNSOLVED: none of the above were enough to finish the puzzle
+	 * NAMES: name of each technique
+	 */
+	public static final int HIDDEN_SINGLE = 0;
+	public static final int NAKED_SINGLE = 1;
+	public static final int POINTING = 2;
+	public static final int BOX_LINE = 3;
+	public static final int NAKED_PAIR = 4;
+	public static final int HIDDEN_PAIR = 5;
+	public static final int NAKED_TRIPLE = 6;
+	public static final int HIDDEN_TRIPLE = 7;
+	public static final int X_WING = 8;
+	public static final int UNSOLVED = 9;
+	public static final String[] NAMES = {"hidden single", "naked single", "pointing",
+			"box/line reduction", "naked pair", "hidden pair", "naked triple",
+			"hidden triple", "x-wing", "unsolved"};
+
+	/**
+	 * ALL: mask with a bit set for each digit 1 through 9, digit d is bit d-1
+	 * UNITS: the 9 cells of each unit. Units 0 to 8 are the rows, and the
+	 *   k-th cell of a row is in column k. Units 9 to 17 are the columns,
+	 *   and the k-th cell of a column is in row k. Units 18 to 26 are boxes
+	 * BOX_OF: box unit of each cell
+	 * PEERS: the 20 other cells sharing a row, column or box with each cell
+	 * COMBOS: every 9-bit mask with 2 bits set, then every one with 3,
+	 *   used to pick cells or digits for pairs and triples
+	 * PAIRS: number of masks with 2 bits set at the front of COMBOS
+	 */
+	private static final int ALL = 0x1FF;
+	private static final int[][] UNITS = new int[27][9];
+	private static final int[] BOX_OF = new int[Board.CELLS];
+	private static final int[][] PEERS = new int[Board.CELLS][20];
+	private static final int[] COMBOS = new int[36 + 84];
+	private static final int PAIRS = 36;
+
+	static
+	{
+		for (int i = 0; i < Board.CELLS; i++)
+		{
+			int a = Board.column(i), b = Board.row(i);
+			int box = (b / 3) * 3 + a / 3;
+			UNITS[b][a] = i;
+			UNITS[9 + a][b] = i;
+			UNITS[18 + box][(b % 3) * 3 + a % 3] = i;
+			BOX_OF[i] = 18 + box;
+		}
+		for (int i = 0; i < Board.CELLS; i++)
+		{
+			int count = 0;
+			for (int j = 0; j < Board.CELLS; j++)
+			{
+				if (j != i && (Board.column(j) == Board.column(i) || Board.row(j) == Board.row(i)
+						|| BOX_OF[j] == BOX_OF[i]))
+				{
+					PEERS[i][count++] = j;
+				}
+			}
+		}
+		int count = 0;
+		for (int size = 2; size <= 3; size++)
+		{
+			for (int mask = 0; mask <= ALL; mask++)
+			{
+				if (Integer.bitCount(mask) == size) COMBOS[count++] = mask;
+			}
+		}
+	}
+
+	/**
+	 * cells: digit in each cell, 0 if empty
+	 * candidates: mask of the digits each empty cell could still take
+	 * positions: scratch mask of the cells of one unit holding each digit
+	 * left: number of empty cells
+	 * steps: number of steps taken by the last grade
+	 * hardest: hardest technique used by the last grade
+	 */
+	private final int[] cells = new int[Board.CELLS];
+	private final int[] candidates = new int[Board.CELLS];
+	private final int[] positions = new int[9];
+	private int left;
+	private int steps, hardest;
+
+	/**
+	 * Maps a technique to the game's difficulty levels. Puzzles that only
+	 * need singles are easy, ones that also need locked candidates or
+	 * pairs are medium, and anything harder is hard
+	 * @param technique: hardest technique a puzzle needs
+	 * @return 0 for easy, 1 for medium, 2 for hard
+	 */
+	public static int difficulty(int technique)
+	{
+		if (technique <= NAKED_SINGLE) return 0;
+		else if (technique <= HIDDEN_PAIR) return 1;
+		else return 2;
+	}
+
+	/**
+	 * Solves a puzzle step by step to grade it. The puzzle is not changed.
+	 * Puzzles with no solution or more than one get a meaningless grade
+	 * @param board: puzzle to grade, blank cells are 0
+	 * @return hardest technique needed, UNSOLVED if the techniques here
+	 *   weren't enough
+	 */
+	public int grade(Board board)
+	{
+		if (board.order() != Board.ORDER)
+			throw new IllegalArgumentException("only classic 9x9 boards can be graded");
+		load(board);
+		steps = 0;
+		hardest = HIDDEN_SINGLE;
+
+		while (left > 0)
+		{
+			int technique = step();
+			if (technique == UNSOLVED)
+			{
+				hardest = UNSOLVED;
+				break;
+			}
+			hardest = Math.max(hardest, technique);
+			steps++;
+		}
+		return hardest;
+	}
+
+	/**
+	 * Accessor for the number of steps the last grade took, each single
+	 * placed and each elimination counting as one
+	 * @return number of steps
+	 */
+	public int getSteps()
+	{
+		return steps;
+	}
+
+	/**
+	 * Accessor for the hardest technique the last grade needed
+	 * @return technique
+	 */
+	public int getHardest()
+	{
+		return hardest;
+	}
+
+	/**
+	 * Takes one step with the easiest technique that makes progress
+	 * @return technique used, UNSOLVED if none made progress
+	 */
+	private int step()
+	{
+		if (hiddenSingle()) return HIDDEN_SINGLE;
+		if (nakedSingle()) return NAKED_SINGLE;
+		if (pointing()) return POINTING;
+		if (boxLine()) return BOX_LINE;
+		if (nakedSubset(0, PAIRS)) return NAKED_PAIR;
+		if (hiddenSubset(0, PAIRS)) return HIDDEN_PAIR;
+		if (nakedSubset(PAIRS, COMBOS.length)) return NAKED_TRIPLE;
+		if (hiddenSubset(PAIRS, COMBOS.length)) return HIDDEN_TRIPLE;
+		if (xWing()) return X_WING;
+		return UNSOLVED;
+	}
+
+	/**
+	 * Loads the givens and works out the candidates of every empty cell
+	 * @param board
+	 */
+	private void load(Board board)
+	{
+		left = Board.CELLS;
+		for (int i = 0; i < Board.CELLS; i++)
+		{
+			cells[i] = 0;
+			candidates[i] = ALL;
+		}
+		for (int i = 0; i < Board.CELLS; i++)
+		{
+			if (board.get(i) != 0) place(i, board.get(i));
+		}
+	}
+
+	/**
+	 * Puts a digit in a cell and removes it from the cell's peers
+	 * @param i: cell index
+	 * @param digit
+	 */
+	private void place(int i, int digit)
+	{
+		cells[i] = digit;
+		candidates[i] = 0;
+		left--;
+
+		int clear = ~(1 << (digit - 1));
+		int[] peers = PEERS[i];
+		for (int p = 0; p < peers.length; p++)
+		{
+			candidates[peers[p]] &= clear;
+		}
+	}
+
+	/**
+	 * Removes digits from a cell's candidates
+	 * @param i: cell index
+	 * @param digits: mask of digits to remove
+	 * @return true if any were removed
+	 */
+	private boolean eliminate(int i, int digits)
+	{
+		if ((candidates[i] & digits) == 0) return false;
+		candidates[i] &= ~digits;
+		return true;
+	}
+
+	/**
+	 * Places a digit that fits in only one cell of some unit
+	 * @return true if a digit was placed
+	 */
+	private boolean hiddenSingle()
+	{
+		for (int u = 0; u < 27; u++)
+		{
+			int[] unit = UNITS[u];
+
+			// digits seen at least once, and digits seen more than once
+			int once = 0, twice = 0;
+			for (int k = 0; k < 9; k++)
+			{
+				twice |= once & candidates[unit[k]];
+				once |= candidates[unit[k]];
+			}
+
+			int single = once & ~twice;
+			if (single != 0)
+			{
+				int bit = Integer.lowestOneBit(single);
+				for (int k = 0; k < 9; k++)
+				{
+					if ((candidates[unit[k]] & bit) != 0)
+					{
+						place(unit[k], Integer.numberOfTrailingZeros(bit) + 1);
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Places the only candidate of a cell
+	 * @return true if a digit was placed
+	 */
+	private boolean nakedSingle()
+	{
+		for (int i = 0; i < Board.CELLS; i++)
+		{
+			if (cells[i] == 0 && Integer.bitCount(candidates[i]) == 1)
+			{
+				place(i, Integer.numberOfTrailingZeros(candidates[i]) + 1);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Looks for a digit whose candidates in a box all lie in one row or
+	 * column, and removes it from the rest of that row or column
+	 * @return true if any candidate was removed
+	 */
+	private boolean pointing()
+	{
+		for (int u = 18; u < 27; u++)
+		{
+			for (int d = 0; d < 9; d++)
+			{
+				int bit = 1 << d;
+				int line = -1;
+				boolean sameRow = true, sameColumn = true;
+				int first = -1;
+				for (int k = 0; k < 9; k++)
+				{
+					int i = UNITS[u][k];
+					if ((candidates[i] & bit) == 0) continue;
+					if (first < 0) first = i;
+					else
+					{
+						sameRow &= Board.row(i) == Board.row(first);
+						sameColumn &= Board.column(i) == Board.column(first);
+					}
+				}
+				if (first < 0) continue;
+
+				if (sameRow) line = Board.row(first);
+				else if (sameColumn) line = 9 + Board.column(first);
+				else continue;
+
+				if (clearOutside(line, u, bit)) return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Looks for a digit whose candidates in a row or column all lie in
+	 * one box, and removes it from the rest of that box
+	 * @return true if any candidate was removed
+	 */
+	private boolean boxLine()
+	{
+		for (int u = 0; u < 18; u++)
+		{
+			for (int d = 0; d < 9; d++)
+			{
+				int bit = 1 << d;
+				int box = -1;
+				for (int k = 0; k < 9; k++)
+				{
+					int i = UNITS[u][k];
+					if ((candidates[i] & bit) == 0) continue;
+					if (box < 0) box = BOX_OF[i];
+					else if (box != BOX_OF[i])
+					{
+						box = -2;
+						break;
+					}
+				}
+				if (box < 0) continue;
+
+				if (clearOutside(box, u, bit)) return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes digits from the cells of one unit that aren't in another
+	 * @param unit: unit to remove them from
+	 * @param keep: unit whose cells keep them
+	 * @param digits: mask of digits to remove
+	 * @return true if any candidate was removed
+	 */
+	private boolean clearOutside(int unit, int keep, int digits)
+	{
+		boolean changed = false;
+		for (int k = 0; k < 9; k++)
+		{
+			int i = UNITS[unit][k];
+			if (!inUnit(i, keep)) changed |= eliminate(i, digits);
+		}
+		return changed;
+	}
+
+	/**
+	 * @param i: cell index
+	 * @param u: unit
+	 * @return true if the cell is in the unit
+	 */
+	private static boolean inUnit(int i, int u)
+	{
+		if (u < 9) return Board.row(i) == u;
+		else if (u < 18) return Board.column(i) == u - 9;
+		else return BOX_OF[i] == u;
+	}
+
+	/**
+	 * Looks for cells of a unit whose candidates, all together, are no
+	 * more digits than there are cells, and removes those digits from
+	 * the rest of the unit
+	 * @param from, to: range of COMBOS to try, picking the cells
+	 * @return true if any candidate was removed
+	 */
+	private boolean nakedSubset(int from, int to)
+	{
+		for (int u = 0; u < 27; u++)
+		{
+			int[] unit = UNITS[u];
+			int empty = 0;
+			for (int k = 0; k < 9; k++)
+			{
+				if (cells[unit[k]] == 0) empty |= 1 << k;
+			}
+
+			for (int c = from; c < to; c++)
+			{
+				int combo = COMBOS[c];
+				if ((combo & ~empty) != 0) continue;
+
+				int digits = 0;
+				for (int k = 0; k < 9; k++)
+				{
+					if ((combo & (1 << k)) != 0) digits |= candidates[unit[k]];
+				}
+				if (Integer.bitCount(digits) != Integer.bitCount(combo)) continue;
+
+				boolean changed = false;
+				for (int k = 0; k < 9; k++)
+				{
+					if ((combo & (1 << k)) == 0) changed |= eliminate(unit[k], digits);
+				}
+				if (changed) return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Looks for digits of a unit that, all together, fit in no more
+	 * cells than there are digits, and removes every other candidate
+	 * from those cells
+	 * @param from, to: range of COMBOS to try, picking the digits
+	 * @return true if any candidate was removed
+	 */
+	private boolean hiddenSubset(int from, int to)
+	{
+		for (int u = 0; u < 27; u++)
+		{
+			int[] unit = UNITS[u];
+			int open = 0;
+			for (int d = 0; d < 9; d++)
+			{
+				positions[d] = 0;
+			}
+			for (int k = 0; k < 9; k++)
+			{
+				int mask = candidates[unit[k]];
+				open |= mask;
+				while (mask != 0)
+				{
+					positions[Integer.numberOfTrailingZeros(mask)] |= 1 << k;
+					mask &= mask - 1;
+				}
+			}
+
+			for (int c = from; c < to; c++)
+			{
+				int combo = COMBOS[c];
+				if ((combo & ~open) != 0) continue;
+
+				int where = 0;
+				for (int d = 0; d < 9; d++)
+				{
+					if ((combo & (1 << d)) != 0) where |= positions[d];
+				}
+				if (Integer.bitCount(where) != Integer.bitCount(combo)) continue;
+
+				boolean changed = false;
+				for (int k = 0; k < 9; k++)
+				{
+					if ((where & (1 << k)) != 0) changed |= eliminate(unit[k], ~combo & ALL);
+				}
+				if (changed) return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Looks for a digit that fits in the same two columns of two rows,
+	 * removing it from the rest of those columns, or in the same two rows
+	 * of two columns, removing it from the rest of those rows
+	 * @return true if any candidate was removed
+	 */
+	private boolean xWing()
+	{
+		for (int d = 0; d < 9; d++)
+		{
+			int bit = 1 << d;
+
+			// rows are units 0 to 8 crossing columns 9 to 17, and the other way around
+			for (int base = 0; base <= 9; base += 9)
+			{
+				int cross = 9 - base;
+				for (int u = 0; u < 9; u++)
+				{
+					positions[u] = 0;
+					for (int k = 0; k < 9; k++)
+					{
+						if ((candidates[UNITS[base + u][k]] & bit) != 0) positions[u] |= 1 << k;
+					}
+				}
+
+				for (int u = 0; u < 9; u++)
+				{
+					if (Integer.bitCount(positions[u]) != 2) continue;
+					for (int v = u + 1; v < 9; v++)
+					{
+						if (positions[v] != positions[u]) continue;
+
+						boolean changed = false;
+						int lines = positions[u];
+						while (lines != 0)
+						{
+							int[] line = UNITS[cross + Integer.numberOfTrailingZeros(lines)];
+							for (int k = 0; k < 9; k++)
+							{
+								if (k != u && k != v) changed |= eliminate(line[k], bit);
+							}
+							lines &= lines - 1;
+						}
+						if (changed) return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+}
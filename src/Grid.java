@@ -1,7 +1,9 @@
 /**
  * @author Adam Jilling
  * 
- * Creates a new valid, randomized Sudoku grid
+ * Creates a new valid, randomized Sudoku grid of any board order
+ * Each generated grid comes from a 64-bit ID, and the same ID, order
+ * and difficulty always give the same grid and blanks
  * Since easyGrid, mediumGrid, and hardGrid will inherit from this,
  * Grid class itself is abstract
  */
@@ -9,175 +11,318 @@
 public abstract class Grid
 {
 	/**
-	 * two arrays: the grid we create and a copy for the answer key
+	 * two boards: the grid we create and a copy for the answer key
 	 */
-	protected short grid[][] = new short[9][9];
-	protected short answerGrid[][] = new short[9][9];
+	protected Board grid;
+	protected Board answerGrid;
 	
 	/**
-	 * Constructor will create a grid and a copy of grid
+	 * an arbitrary, already valid classic Sudoku grid, one row per line
 	 */
-	public Grid()
+	private static final String DEFAULT =
+			"391286574" +
+			"487359126" +
+			"652714839" +
+			"875431692" +
+			"213967485" +
+			"964528713" +
+			"149673258" +
+			"538142967" +
+			"726895341";
+	
+	/**
+	 * time taken by the last call to fillBlanks, in nanoseconds
+	 */
+	private long blankTime;
+	
+	/**
+	 * generator that does the random work for this grid
+	 */
+	private final Generator generator;
+	
+	/**
+	 * ID the grid was generated from, and whether it has one. The top
+	 * hex digit of a puzzle's ID is its board order and the next one its
+	 * difficulty, the rest is random, so the ID alone rebuilds the puzzle
+	 */
+	private static final int ORDER_SHIFT = 60;
+	private static final int DIFFICULTY_SHIFT = 56;
+	private static final long RANDOM_BITS = (1L << DIFFICULTY_SHIFT) - 1;
+	private final long id;
+	private final boolean hasId;
+	
+	/**
+	 * hardest technique the puzzle needs and the number of steps it takes,
+	 * see Grader. The technique is -1 if the grid was never graded
+	 */
+	private int technique = -1;
+	private int steps;
+	
+	/**
+	 * Constructor will recreate the full grid with an ID and a copy of
+	 * grid, for the subclasses to blank at the ID's difficulty
+	 * @param order: from Board.MIN_ORDER to Board.MAX_ORDER
+	 * @param difficulty: 0 for easy, 1 for medium, 2 for hard
+	 * @param someGenerator: generator to use, only from the calling thread
+	 * @param someId: ID of the grid, made by newId for this order and
+	 *   difficulty
+	 */
+	protected Grid(int order, int difficulty, Generator someGenerator, long someId)
 	{
+		if (orderOf(someId) != order || difficultyOf(someId) != difficulty)
+			throw new IllegalArgumentException("ID " + Long.toHexString(someId) + " is not for order "
+					+ order + " and difficulty " + difficulty);
+		generator = someGenerator;
+		id = someId;
+		hasId = true;
+		generator.seed(id);
+		grid = new Board(order);
+		answerGrid = new Board(order);
 		fillDefault();
-		shuffle();
+		generator.shuffle(grid);
 		
 		// copy filled out grid to answer grid before blanks are added
-		for (int c = 0; c < 9; c++)
-		{
-			for (int j = 0; j < 9; j++)
-			{
-				answerGrid[j][c] = grid[j][c];
-			}
-		}
+		answerGrid.copyFrom(grid);
+	}
+	
+	/**
+	 * Constructor for a grid that was built elsewhere, such as one
+	 * read from a PuzzleBank. Such a grid has no generator, so
+	 * fillBlanks must not be called on it
+	 * @param someGrid: puzzle with blanks
+	 * @param someAnswer: answer key
+	 */
+	protected Grid(Board someGrid, Board someAnswer)
+	{
+		generator = null;
+		id = 0;
+		hasId = false;
+		grid = someGrid;
+		answerGrid = someAnswer;
+	}
+	
+	/**
+	 * Constructor for a grid that was generated earlier and saved, such
+	 * as one read back from a Journal. Like the one above, fillBlanks
+	 * must not be called on it
+	 * @param someGrid: puzzle with blanks
+	 * @param someAnswer: answer key
+	 * @param someId: ID the grid was generated from
+	 */
+	protected Grid(Board someGrid, Board someAnswer, long someId)
+	{
+		generator = null;
+		id = someId;
+		hasId = true;
+		grid = someGrid;
+		answerGrid = someAnswer;
+	}
+	
+	/**
+	 * Creates a grid of the given difficulty
+	 * @param difficulty: 0 for easy, 1 for medium, 2 for hard
+	 * @param generator: generator to use, only from the calling thread
+	 * @return new grid with blanks filled in
+	 */
+	public static Grid create(int difficulty, Generator generator)
+	{
+		return create(difficulty, Board.ORDER, generator);
+	}
+	
+	/**
+	 * Creates a grid of the given difficulty and order
+	 * @param difficulty: 0 for easy, 1 for medium, 2 for hard
+	 * @param order: 3 for 9x9, 4 for 16x16, 5 for 25x25
+	 * @param generator: generator to use, only from the calling thread
+	 * @return new grid with blanks filled in
+	 */
+	public static Grid create(int difficulty, int order, Generator generator)
+	{
+		return create(newId(difficulty, order, generator.nextId()), generator);
+	}
+	
+	/**
+	 * Recreates the puzzle with an ID, at the order and difficulty the
+	 * ID holds
+	 * @param id: ID of the puzzle, as made by newId
+	 * @param generator: generator to use, only from the calling thread
+	 * @return the same puzzle every time for the same ID
+	 */
+	public static Grid create(long id, Generator generator)
+	{
+		int order = orderOf(id), difficulty = difficultyOf(id);
+		if (order < Board.MIN_ORDER || order > Board.MAX_ORDER || difficulty > 2)
+			throw new IllegalArgumentException("not a puzzle ID: " + Long.toHexString(id));
+		
+		if (difficulty == 0)
+			return new EasyGrid(order, generator, id);
+		else if (difficulty == 1)
+			return new MediumGrid(order, generator, id);
+		else return new HardGrid(order, generator, id);
+	}
+	
+	/**
+	 * Makes a puzzle ID
+	 * @param difficulty: 0 for easy, 1 for medium, 2 for hard
+	 * @param order: 3 for 9x9, 4 for 16x16, 5 for 25x25
+	 * @param random: any 64-bit value, only the low 56 bits are kept
+	 * @return ID holding all three
+	 */
+	public static long newId(int difficulty, int order, long random)
+	{
+		return (long)order << ORDER_SHIFT | (long)difficulty << DIFFICULTY_SHIFT | random & RANDOM_BITS;
+	}
+	
+	/**
+	 * @param id: puzzle ID
+	 * @return board order the ID was made for
+	 */
+	public static int orderOf(long id)
+	{
+		return (int)(id >>> ORDER_SHIFT);
+	}
+	
+	/**
+	 * @param id: puzzle ID
+	 * @return difficulty the ID was made for, 0 for easy, 1 for medium,
+	 *   2 for hard
+	 */
+	public static int difficultyOf(long id)
+	{
+		return (int)(id >>> DIFFICULTY_SHIFT) & 0xF;
+	}
+	
+	/**
+	 * Accessor method for the ID the grid was generated from
+	 * @return ID, only meaningful if hasId
+	 */
+	public long getId()
+	{
+		return id;
+	}
+	
+	/**
+	 * Grids read from elsewhere, such as a PuzzleBank, were not built
+	 * here and may have no ID
+	 * @return true if the grid was generated from its ID
+	 */
+	public boolean hasId()
+	{
+		return hasId;
+	}
+	
+	/**
+	 * Accessor method for the board order
+	 * @return 3 for 9x9, 4 for 16x16, 5 for 25x25
+	 */
+	public int getOrder()
+	{
+		return grid.order();
 	}
 	
 	/**
 	 * Accessor method to get access to answer key
 	 * @return answerGrid
 	 */
-	public short[][] getAnswerGrid()
+	public Board getAnswerGrid()
 	{
 		return answerGrid;
 	}
 	
 	/**
-	 * Fills an arbitrary, already valid Sudoku grid
+	 * Fills an arbitrary, already valid Sudoku grid. Classic grids start
+	 * from DEFAULT, larger ones from a pattern where each row is the one
+	 * above shifted by a box width, and each band by one more
 	 */
 	private void fillDefault()
 	{
-		grid[0][0]=3; grid[1][0]=9; grid[2][0]=1; grid[3][0]=2; grid[4][0]=8;
-			grid[5][0]=6; grid[6][0]=5; grid[7][0]=7; grid[8][0]=4;
-		grid[0][1]=4; grid[1][1]=8; grid[2][1]=7; grid[3][1]=3; grid[4][1]=5;
-			grid[5][1]=9; grid[6][1]=1; grid[7][1]=2; grid[8][1]=6;
-		grid[0][2]=6; grid[1][2]=5; grid[2][2]=2; grid[3][2]=7; grid[4][2]=1;
-			grid[5][2]=4; grid[6][2]=8; grid[7][2]=3; grid[8][2]=9;
-		grid[0][3]=8; grid[1][3]=7; grid[2][3]=5; grid[3][3]=4; grid[4][3]=3;
-			grid[5][3]=1; grid[6][3]=6; grid[7][3]=9; grid[8][3]=2;
-		grid[0][4]=2; grid[1][4]=1; grid[2][4]=3; grid[3][4]=9; grid[4][4]=6;
-			grid[5][4]=7; grid[6][4]=4; grid[7][4]=8; grid[8][4]=5;
-		grid[0][5]=9; grid[1][5]=6; grid[2][5]=4; grid[3][5]=5; grid[4][5]=2;
-			grid[5][5]=8; grid[6][5]=7; grid[7][5]=1; grid[8][5]=3;
-		grid[0][6]=1; grid[1][6]=4; grid[2][6]=9; grid[3][6]=6; grid[4][6]=7;
-			grid[5][6]=3; grid[6][6]=2; grid[7][6]=5; grid[8][6]=8;
-		grid[0][7]=5; grid[1][7]=3; grid[2][7]=8; grid[3][7]=1; grid[4][7]=4;
-			grid[5][7]=2; grid[6][7]=9; grid[7][7]=6; grid[8][7]=7;
-		grid[0][8]=7; grid[1][8]=2; grid[2][8]=6; grid[3][8]=8; grid[4][8]=9;
-			grid[5][8]=5; grid[6][8]=3; grid[7][8]=4; grid[8][8]=1;
-	}
-	
-	/**
-	 * Find any two rows or columns that are within the same 3x3 parent row or column and swap
-	 * them with each other. For example, row 1 and 2 could be swapped but not row 2 and 7.
-	 * This will happen between 100,000 and 1,000,000 times for both
-	 */
-	private void shuffle()
-	{
-		// create a random number between 100000 and 1000000, number of shuffles to execute
-		int num = (int)(Math.random() * 100000 + 1000000);
-		
-		// two variables for columns or rows to swap
-		int n1, n2;
-		
-		// keep track if the rows or columns are eligible for a swap
-		boolean valid;
-		
-		for (int i = 0; i < num; i++)
+		int n = grid.order(), size = grid.size();
+		for (int b = 0; b < size; b++)
 		{
-			valid = false;
-				
-			// get 2 rows or columns to swap,
-			// then check to see if they are both valid to be swapped
-			do {
-				n1 = (int)(Math.random() * 9);
-				n2 = (int)(Math.random() * 9);
-				valid = isValid(n1, n2);
-			} while(!valid);
-			
-			// once we have valid values, swap that column and row
-			swapColumns(n1, n2);
-			swapRows(n1, n2);
+			for (int a = 0; a < size; a++)
+			{
+				if (n == Board.ORDER) grid.set(a, b, DEFAULT.charAt(b * size + a) - '0');
+				else grid.set(a, b, (n * (b % n) + b / n + a) % size + 1);
+			}
 		}
 	}
 	
 	/**
-	 * Swap one row with another, creates a temp variable to do this
-	 * @param row1
-	 * @param row2
+	 * After grid is initialized this will determine our blank values,
+	 * the numbers to remove to create a playable Sudoku puzzle.
+	 * Blanks are only kept if the puzzle still has exactly one solution
+	 * @param BLANKS
 	 */
-	private void swapRows(int row1, int row2)
+	protected void fillBlanks(int BLANKS)
 	{
-		short temp;
-		
-		// loop through and swap values 0 through 8 with each other
-		for (int i = 0; i < grid.length; i ++)
-		{
-			temp = grid[i][row1];
-			grid[i][row1] = grid[i][row2];
-			grid[i][row2] = temp;
-		}
+		fillBlanks(BLANKS, true);
 	}
 	
 	/**
-	 * Swap one column with another, creates a temp variable to do this
-	 * @param col1
-	 * @param col2
+	 * Removes numbers from the grid, see Generator.fillBlanks
+	 * @param BLANKS: number of blank cells to create
+	 * @param unique: true to keep the solution unique
 	 */
-	private void swapColumns(int col1, int col2)
+	protected void fillBlanks(int BLANKS, boolean unique)
 	{
-		short temp;
-		
-		// loop through and swap values 0 through 8 with each other
-		for (int i = 0; i < grid.length; i ++){
-			temp = grid[col1][i];
-			grid[col1][i] = grid[col2][i];
-			grid[col2][i] = temp;
-		}
+		long begin = System.nanoTime();
+		generator.fillBlanks(grid, answerGrid, BLANKS, unique);
+		blankTime = System.nanoTime() - begin;
 	}
 	
 	/**
-	 * determines if any 2 rows or columns are valid to swap with each other
-	 * i.e. if they are in the same 3x3 parent row or column
-	 * @param num1
-	 * @param num2
-	 * @return if valid or not
+	 * Removes numbers from the grid until it is rated at a difficulty,
+	 * see Generator.fillGradedBlanks, then keeps its grade. The grader
+	 * only knows classic grids, so larger ones are left ungraded and get
+	 * a share of blanks that shrinks with the order: a 25x25 grid with
+	 * more than about half its cells blank takes the solver seconds to
+	 * check, and a 16x16 one rarely stays unique past 60%
+	 * @param BLANKS: least number of blank cells to create on a classic grid
+	 * @param difficulty: 0 for easy, 1 for medium, 2 for hard
 	 */
-	private boolean isValid(int num1, int num2)
+	protected void fillGradedBlanks(int BLANKS, int difficulty)
 	{
-		if (num1 < 3)
-		{
-			if (num2 < 3 && num2 != num1) return true;
-		}
-		else if (num1 < 6)
+		if (grid.order() != Board.ORDER)
 		{
-			if (num2 < 6 && num2 > 2 && num2 != num1) return true;
+			fillBlanks(BLANKS * grid.cellCount() / Board.CELLS * Board.ORDER / grid.order());
+			return;
 		}
-		else if (num1 > 5 && num2 > 5 && num2 != num1) return true;
 		
-		// if none of these conditions are met, they are not valid
-		return false;
+		long begin = System.nanoTime();
+		generator.fillGradedBlanks(grid, answerGrid, BLANKS, difficulty);
+		blankTime = System.nanoTime() - begin;
+		
+		Grader grader = generator.grader();
+		technique = grader.grade(grid);
+		steps = grader.getSteps();
 	}
 	
 	/**
-	 * After grid is initialized this will determine our blank values,
-	 * the numbers to remove to create a playable Sudoku puzzle
-	 * @param BLANKS
+	 * Accessor method for the hardest technique the puzzle needs
+	 * @return one of the Grader techniques, -1 if never graded
 	 */
-	protected void fillBlanks(int BLANKS)
+	public int getTechnique()
 	{
-		for (int i = 0; i < BLANKS; i++)
-		{
-			int a, b;
-			
-			// find random spots in the puzzle that are not already blank
-			do {
-				a = (int)(Math.random() * 9);
-				b = (int)(Math.random() * 9);
-			} while(grid[a][b] == 0);
-			
-			// make them blank, or zero
-			grid[a][b] = 0;
-		}
+		return technique;
+	}
+	
+	/**
+	 * Accessor method for the number of steps the puzzle takes to solve
+	 * @return number of steps, 0 if never graded
+	 */
+	public int getSteps()
+	{
+		return steps;
+	}
+	
+	/**
+	 * Accessor method for how long the last call to fillBlanks or
+	 * fillGradedBlanks took
+	 * @return time in nanoseconds
+	 */
+	public long getBlankTime()
+	{
+		return blankTime;
 	}
 	
 }
\ No newline at end of file
@@ -8,17 +8,48 @@
 public class HardGrid extends Grid
 {
 	/**
-	 * Number of blank tiles to create
+	 * Least number of blank tiles to create, more are added until
+	 * the grader rates the puzzle hard
 	 */
 	private final int BLANKS = 50;
 	
 	/**
-	 * Call the super constructor and alter blank values here
+	 * Constructor using the generator of the current thread
 	 */
 	public HardGrid()
 	{
-		super();
-		fillBlanks(BLANKS);
+		this(Generator.local());
+	}
+	
+	/**
+	 * Same as above, but with a specific generator
+	 * @param generator
+	 */
+	public HardGrid(Generator generator)
+	{
+		this(Board.ORDER, generator);
+	}
+	
+	/**
+	 * Same as above, but for a board of any order, with a new ID
+	 * @param order
+	 * @param generator
+	 */
+	public HardGrid(int order, Generator generator)
+	{
+		this(order, generator, Grid.newId(2, order, generator.nextId()));
+	}
+	
+	/**
+	 * Same as above, but recreating the grid with an ID
+	 * @param order
+	 * @param generator
+	 * @param id: ID made by Grid.newId for a hard grid of this order
+	 */
+	public HardGrid(int order, Generator generator, long id)
+	{
+		super(order, 2, generator, id);
+		fillGradedBlanks(BLANKS, 2);
 	}
 
 }
\ No newline at end of file
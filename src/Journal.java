@@ -0,0 +1,584 @@
+/**
+ * @author Adam Jilling
+ *
+ * Saves the game being played so it survives the window closing or the
+ * game crashing. Every move is appended to a log file as a fixed-width
+ * record, and every so often the whole game is written to a snapshot file
+ * and the log is started over. Resuming maps the snapshot, rebuilds the
+ * game from it, and replays the few records logged after it.
+ *
+ * Moves are recorded on the event thread into a buffer, and a background
+ * thread writes the buffer out and forces it to disk every FLUSH_MILLIS,
+ * so a move never waits for the disk. At most the last FLUSH_MILLIS of
+ * moves can be lost in a crash. Snapshots are written to a temporary file
+ * and renamed over the old one, and the folder is forced to disk before
+ * the log is started over, so there is always a whole snapshot on disk.
+ *
+ * Log records, 16 bytes each, big-endian:
+ *   int sequence number, counting up from the snapshot's
+ *   byte kind, byte value, short cell
+ *   long milliseconds played so far
+ * Records at the start of the log that the snapshot already includes are
+ * skipped. After them, a record whose sequence number doesn't follow on
+ * from the last one, such as one only half written before a crash, ends
+ * the log. Starting a new puzzle uses up a sequence number without logging
+ * it, so if its snapshot is lost, its records can't follow on from the old
+ * puzzle's snapshot and are never replayed onto the wrong board.
+ *
+ * Snapshot layout, big-endian:
+ *   header, 64 bytes: magic "SDKJ", version, board order, difficulty,
+ *     puzzle ID, 1 if the puzzle has an ID, hints used, sequence number
+ *     of the last record included, milliseconds played, move position
+ *     and move count as in GameModel, then zero padding
+ *   one byte per cell for the puzzle's givens, 0 for blank
+ *   one byte per cell for the answer key
+ *   one int per move in the history, as GameModel.move
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class Journal
+{
+	/**
+	 * Kinds of record:
+	 * PLAY: the user put a value in a cell
+	 * HINT: a hint filled in a cell
+	 * UNDO, REDO: a move was undone or redone
+	 * RESET: the puzzle was started over
+	 * PAUSE: nothing changed, only the time played, logged on closing
+	 */
+	public static final int PLAY = 1;
+	public static final int HINT = 2;
+	public static final int UNDO = 3;
+	public static final int REDO = 4;
+	public static final int RESET = 5;
+	public static final int PAUSE = 6;
+
+	/**
+	 * MAGIC: first four bytes of every snapshot, "SDKJ"
+	 * VERSION: version of the file layouts
+	 * HEADER: size of the snapshot header in bytes
+	 * RECORD: size of one log record in bytes
+	 * BATCH: records buffered before the event thread has to wait for
+	 *   the writer
+	 * COMPACT: records logged before the game is snapshotted again
+	 * FLUSH_MILLIS: time between writes to disk
+	 */
+	private static final int MAGIC = 0x53444B4A;
+	private static final int VERSION = 1;
+	private static final int HEADER = 64;
+	private static final int RECORD = 16;
+	private static final int BATCH = 1024;
+	private static final int COMPACT = 4096;
+	private static final long FLUSH_MILLIS = 200;
+
+	/**
+	 * snapshotFile, logFile: where the game is saved
+	 * log: the log file, open for the life of the journal
+	 * grid, model: the game being recorded, null before the first one
+	 * difficulty: difficulty of the game being recorded
+	 * hints: hints used, as of the last record
+	 * elapsed: milliseconds played, as of the last record
+	 * sequence: sequence number of the last record
+	 * logged: records logged since the last snapshot
+	 * pending: records not handed to the writer yet
+	 * writing: records the writer is writing, swapped with pending
+	 * snapshot: snapshot not handed to the writer yet, or null
+	 * writer: background thread that does all the writing
+	 * closed: true once close has been called
+	 * failed: first error the writer ran into, after which it gives up
+	 */
+	private final Path snapshotFile;
+	private final Path logFile;
+	private final FileChannel log;
+	private Grid grid;
+	private GameModel model;
+	private int difficulty;
+	private int hints;
+	private long elapsed;
+	private int sequence;
+	private int logged;
+	private ByteBuffer pending = ByteBuffer.allocateDirect(BATCH * RECORD);
+	private ByteBuffer writing = ByteBuffer.allocateDirect(BATCH * RECORD);
+	private ByteBuffer snapshot;
+	private Thread writer;
+	private boolean closed;
+	private IOException failed;
+
+	/**
+	 * Constructor opens the log, creating it if needed. Nothing is
+	 * written until resume or start is called
+	 * @param someSnapshot: snapshot file
+	 * @param someLog: log file
+	 * @throws IOException if the log can't be opened
+	 */
+	public Journal(Path someSnapshot, Path someLog) throws IOException
+	{
+		snapshotFile = someSnapshot;
+		logFile = someLog;
+		log = FileChannel.open(logFile, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Rebuilds the saved game, if there is one of the right order, and
+	 * starts recording it again
+	 * @param order: board order the game is being played with
+	 * @return true if a game was resumed, see getGrid, getModel,
+	 *   getDifficulty, getHints and getElapsed
+	 * @throws IOException if the files can't be read
+	 */
+	public synchronized boolean resume(int order) throws IOException
+	{
+		if (!Files.exists(snapshotFile) || !readSnapshot(order)) return false;
+		replayLog();
+		startWriter();
+		return true;
+	}
+
+	/**
+	 * Starts recording a new game. The old one is replaced as soon as
+	 * the writer gets to it
+	 * @param someGrid: puzzle being played
+	 * @param someDifficulty: 0 for easy, 1 for medium, 2 for hard
+	 * @param someModel: the user's progress, recorded from here on
+	 */
+	public synchronized void start(Grid someGrid, int someDifficulty, GameModel someModel)
+	{
+		grid = someGrid;
+		difficulty = someDifficulty;
+		model = someModel;
+		hints = 0;
+		elapsed = 0;
+		sequence++;
+		takeSnapshot();
+		startWriter();
+	}
+
+	/**
+	 * Records a move that has just been made to the model, on the thread
+	 * playing the game
+	 * @param kind: PLAY, HINT, UNDO, REDO, RESET or PAUSE
+	 * @param cell: cell changed, 0 if none
+	 * @param value: new value of the cell, 0 if none
+	 * @param someElapsed: milliseconds played so far
+	 */
+	public synchronized void record(int kind, int cell, int value, long someElapsed)
+	{
+		if (model == null || closed) return;
+
+		count(kind, someElapsed);
+		if (++logged >= COMPACT)
+		{
+			takeSnapshot();
+			return;
+		}
+
+		// the writer swaps the buffers every FLUSH_MILLIS, so this wait is rare
+		while (!pending.hasRemaining() && failed == null)
+		{
+			notifyAll();
+			try
+			{
+				wait();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		if (failed != null) return;
+		pending.putInt(sequence).put((byte)kind).put((byte)value).putShort((short)cell).putLong(someElapsed);
+	}
+
+	/**
+	 * Writes out everything recorded and stops the writer. Called as the
+	 * game closes
+	 */
+	public void close()
+	{
+		Thread stopping;
+		synchronized (this)
+		{
+			closed = true;
+			notifyAll();
+			stopping = writer;
+		}
+
+		try
+		{
+			if (stopping != null) stopping.join();
+			log.close();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not close " + logFile + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Accessor for the resumed puzzle
+	 * @return grid
+	 */
+	public Grid getGrid()
+	{
+		return grid;
+	}
+
+	/**
+	 * Accessor for the resumed progress, which keeps being recorded
+	 * @return model
+	 */
+	public GameModel getModel()
+	{
+		return model;
+	}
+
+	/**
+	 * Accessor for the resumed puzzle's difficulty
+	 * @return 0 for easy, 1 for medium, 2 for hard
+	 */
+	public int getDifficulty()
+	{
+		return difficulty;
+	}
+
+	/**
+	 * Accessor for the number of hints used in the resumed game
+	 * @return hints
+	 */
+	public int getHints()
+	{
+		return hints;
+	}
+
+	/**
+	 * Accessor for how long the resumed game has been played
+	 * @return time in milliseconds
+	 */
+	public long getElapsed()
+	{
+		return elapsed;
+	}
+
+	/**
+	 * Keeps the hint count, time played and sequence number up to date
+	 * with a record
+	 * @param kind
+	 * @param someElapsed
+	 */
+	private void count(int kind, long someElapsed)
+	{
+		if (kind == HINT) hints++;
+		else if (kind == RESET) hints = 0;
+		elapsed = someElapsed;
+		sequence++;
+	}
+
+	/**
+	 * Writes the whole game into a new snapshot for the writer. The
+	 * records not handed to the writer yet are all in the snapshot, so
+	 * they are dropped
+	 */
+	private void takeSnapshot()
+	{
+		Board givens = grid.grid;
+		Board answer = grid.getAnswerGrid();
+		int cells = givens.cellCount();
+		int moves = model.moveCount();
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER + 2 * cells + 4 * moves);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(givens.order()).putInt(difficulty);
+		buffer.putLong(grid.getId()).putInt(grid.hasId() ? 1 : 0).putInt(hints);
+		buffer.putInt(sequence).putLong(elapsed).putInt(model.movePosition()).putInt(moves);
+		buffer.position(HEADER);
+		for (int i = 0; i < cells; i++)
+		{
+			buffer.put((byte)givens.get(i));
+		}
+		for (int i = 0; i < cells; i++)
+		{
+			buffer.put((byte)answer.get(i));
+		}
+		for (int k = 0; k < moves; k++)
+		{
+			buffer.putInt(model.move(k));
+		}
+		buffer.flip();
+
+		snapshot = buffer;
+		pending.clear();
+		logged = 0;
+		notifyAll();
+	}
+
+	/**
+	 * Maps the snapshot and rebuilds the game in it
+	 * @param order: board order the game is being played with
+	 * @return false if the snapshot is of another order
+	 * @throws IOException if the snapshot can't be read or is damaged
+	 */
+	private boolean readSnapshot(int order) throws IOException
+	{
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ))
+		{
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.remaining() < HEADER || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			throw new IOException(snapshotFile + " is not a saved game");
+		if (buffer.getInt() != order) return false;
+
+		difficulty = buffer.getInt();
+		long id = buffer.getLong();
+		boolean hasId = buffer.getInt() != 0;
+		hints = buffer.getInt();
+		sequence = buffer.getInt();
+		elapsed = buffer.getLong();
+		int position = buffer.getInt();
+		int moves = buffer.getInt();
+
+		Board givens = new Board(order);
+		Board answer = new Board(order);
+		int cells = givens.cellCount();
+		if (difficulty < 0 || difficulty > 2 || moves < 0 || position < 0 || position > moves)
+			throw new IOException(snapshotFile + " is damaged");
+		if (buffer.capacity() < HEADER + 2 * cells + 4L * moves)
+			throw new IOException(snapshotFile + " is truncated");
+		buffer.position(HEADER);
+		int size = givens.size();
+		for (int i = 0; i < cells; i++)
+		{
+			int value = buffer.get();
+			if (value < 0 || value > size) throw new IOException(snapshotFile + " is damaged");
+			givens.set(i, value);
+		}
+		for (int i = 0; i < cells; i++)
+		{
+			int value = buffer.get();
+			if (value < 1 || value > size) throw new IOException(snapshotFile + " is damaged");
+			answer.set(i, value);
+		}
+		grid = hasId ? new SavedGrid(givens, answer, id) : new SavedGrid(givens, answer);
+
+		// play the whole history, then undo back to where the user was
+		model = new GameModel(grid);
+		for (int k = 0; k < moves; k++)
+		{
+			int move = buffer.getInt();
+			if (move >>> 16 >= cells || (move & 0xFF) > size)
+				throw new IOException(snapshotFile + " is damaged");
+			model.play(move >>> 16, move & 0xFF);
+		}
+		while (model.movePosition() > position)
+		{
+			model.undo();
+		}
+		return true;
+	}
+
+	/**
+	 * Replays the records logged after the snapshot, then cuts off
+	 * anything after the last good record so new ones follow straight on
+	 * @throws IOException
+	 */
+	private void replayLog() throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate((int)Math.min(log.size(), Integer.MAX_VALUE - 8));
+		log.position(0);
+		while (buffer.hasRemaining() && log.read(buffer) >= 0) {}
+		buffer.flip();
+
+		int good = 0;
+		boolean started = false;
+		while (buffer.remaining() >= RECORD)
+		{
+			int number = buffer.getInt();
+			int kind = buffer.get();
+			int value = buffer.get();
+			int cell = buffer.getShort() & 0xFFFF;
+			long time = buffer.getLong();
+
+			// records from before the snapshot are left over from a crash while compacting
+			if (!started && number - sequence <= 0)
+			{
+				good = buffer.position();
+				continue;
+			}
+			if (number != sequence + 1 || !apply(kind, cell, value)) break;
+
+			started = true;
+			count(kind, time);
+			logged++;
+			good = buffer.position();
+		}
+
+		log.truncate(good);
+		log.position(good);
+	}
+
+	/**
+	 * Makes a logged move to the model
+	 * @param kind
+	 * @param cell
+	 * @param value
+	 * @return false if the record is not a move, or is out of range
+	 */
+	private boolean apply(int kind, int cell, int value)
+	{
+		if (kind == PLAY || kind == HINT)
+		{
+			if (cell >= model.cellCount() || value < 0 || value > grid.grid.size()) return false;
+			model.play(cell, value);
+		}
+		else if (kind == UNDO) model.undo();
+		else if (kind == REDO) model.redo();
+		else if (kind == RESET) model.reset();
+		else if (kind != PAUSE) return false;
+		return true;
+	}
+
+	/**
+	 * Starts the writer thread if it isn't running yet
+	 */
+	private void startWriter()
+	{
+		if (writer != null) return;
+
+		writer = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				write();
+			}
+		}, "journal-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Body of the writer thread. Every FLUSH_MILLIS, or sooner if asked,
+	 * takes whatever has been recorded and writes it, until closed
+	 */
+	private void write()
+	{
+		boolean last = false;
+		while (!last)
+		{
+			ByteBuffer nextSnapshot;
+			synchronized (this)
+			{
+				if (!closed && pending.hasRemaining())
+				{
+					try
+					{
+						wait(FLUSH_MILLIS);
+					}
+					catch (InterruptedException e)
+					{
+						closed = true;
+					}
+				}
+				last = closed;
+
+				// take the records and snapshot, and let the event thread carry on
+				ByteBuffer swap = writing;
+				writing = pending;
+				pending = swap;
+				pending.clear();
+				nextSnapshot = snapshot;
+				snapshot = null;
+				notifyAll();
+			}
+
+			try
+			{
+				if (nextSnapshot != null) writeSnapshot(nextSnapshot);
+				writing.flip();
+				if (writing.hasRemaining())
+				{
+					while (writing.hasRemaining()) log.write(writing);
+					log.force(false);
+				}
+			}
+			catch (IOException e)
+			{
+				synchronized (this)
+				{
+					failed = e;
+					notifyAll();
+				}
+				System.err.println("Could not save the game to " + logFile + ": " + e.getMessage());
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Replaces the snapshot on disk and starts the log over
+	 * @param buffer: the new snapshot
+	 * @throws IOException
+	 */
+	private void writeSnapshot(ByteBuffer buffer) throws IOException
+	{
+		Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			while (buffer.hasRemaining()) channel.write(buffer);
+			channel.force(true);
+		}
+		Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		forceFolder();
+
+		// a crash before this leaves old records, which resume skips
+		log.truncate(0);
+		log.position(0);
+	}
+
+	/**
+	 * Forces the rename of the snapshot to disk, so the log is never
+	 * started over while the old snapshot could still come back
+	 */
+	private void forceFolder()
+	{
+		Path folder = snapshotFile.toAbsolutePath().getParent();
+		try (FileChannel channel = FileChannel.open(folder, StandardOpenOption.READ))
+		{
+			channel.force(true);
+		}
+		catch (IOException e)
+		{
+			// some systems, such as Windows, can't open a folder, and make renames durable themselves
+		}
+	}
+
+	/**
+	 * A grid read back from a snapshot
+	 */
+	private static class SavedGrid extends Grid
+	{
+		SavedGrid(Board grid, Board answer)
+		{
+			super(grid, answer);
+		}
+
+		SavedGrid(Board grid, Board answer, long id)
+		{
+			super(grid, answer, id);
+		}
+	}
+}
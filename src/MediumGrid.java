@@ -8,17 +8,48 @@
 public class MediumGrid extends Grid
 {
 	/**
-	 * Number of blank tiles to create
+	 * Least number of blank tiles to create, more are added until
+	 * the grader rates the puzzle medium
 	 */
 	private final int BLANKS = 40;
 	
 	/**
-	 * Call the super constructor and alter blank values here
+	 * Constructor using the generator of the current thread
 	 */
 	public MediumGrid()
 	{
-		super();
-		fillBlanks(BLANKS);
+		this(Generator.local());
+	}
+	
+	/**
+	 * Same as above, but with a specific generator
+	 * @param generator
+	 */
+	public MediumGrid(Generator generator)
+	{
+		this(Board.ORDER, generator);
+	}
+	
+	/**
+	 * Same as above, but for a board of any order, with a new ID
+	 * @param order
+	 * @param generator
+	 */
+	public MediumGrid(int order, Generator generator)
+	{
+		this(order, generator, Grid.newId(1, order, generator.nextId()));
+	}
+	
+	/**
+	 * Same as above, but recreating the grid with an ID
+	 * @param order
+	 * @param generator
+	 * @param id: ID made by Grid.newId for a medium grid of this order
+	 */
+	public MediumGrid(int order, Generator generator, long id)
+	{
+		super(order, 1, generator, id);
+		fillGradedBlanks(BLANKS, 1);
 	}
 
 }
\ No newline at end of file
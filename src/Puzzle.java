@@ -2,66 +2,143 @@
  * @author Adam Jilling
  * 
  * Puzzle object is the main grid on the screen that user will interact with.
- * It has either a easyGrid, mediumGrid, or hardGrid.
+ * It has either a easyGrid, mediumGrid, or hardGrid, of any board order.
+ * The puzzle is always the same size on screen, so the boxes of the larger
+ * boards are smaller.
  */
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Rectangle;
 
 public class Puzzle
 {
 	/**
 	 * Will have a grid with blank cells
 	 * int x, y: location
-	 * Box[][] boxArray: array of Box objects to fill grid with
+	 * Board values: the number shown in each box
+	 * boolean[] changeable: which boxes the user may change, these are the
+	 *   boxes that were blank in the grid and are drawn in blue
+	 * int boxWidth: width of each box, smaller on larger boards
+	 * int[] boxX, boxY: screen location of each box
+	 * Image border: the outer border, drawn on first use
 	 */
 	Grid grid;
 	Grid answerGrid;
 	private int x, y;
 	private final int WIDTH = 400;
-	private final int BOX_WIDTH = 43;
-	protected Box[][] boxArray = new Box[9][9];
+	private int boxWidth;
+	private Board values;
+	private boolean[] changeable;
+	private int[] boxX, boxY;
+	private Image border;
 	
 	/**
-	 * Puzzle constructor
+	 * Puzzle constructor for an empty board with no grid
 	 * @param someX: x location
 	 * @param someY: y location
-	 * @param difficulty: easy, medium, or hard
+	 * @param someValues: blank board of the right order
 	 */
-	public Puzzle(int someX, int someY, int difficulty)
+	private Puzzle(int someX, int someY, Board someValues)
 	{
 		x = someX;
 		y = someY;
-		setup(difficulty);
+		values = someValues;
+		changeable = new boolean[values.cellCount()];
+		placeBoxes();
 	}
 	
 	/**
-	 * Will set up puzzle using an int input to determine which level of
-	 * difficulty to create. boxArray will be initialized here as well.
-	 * @param difficulty
+	 * Creates an empty board with no grid, shown while the first puzzle
+	 * is still being made. None of its boxes can be changed
+	 * @param someX: x location
+	 * @param someY: y location
+	 * @param order: board order of the puzzles to come
+	 * @return empty puzzle
+	 */
+	public static Puzzle empty(int someX, int someY, int order)
+	{
+		return new Puzzle(someX, someY, new Board(order));
+	}
+	
+	/**
+	 * Puzzle constructor for a grid that already exists
+	 * @param someX: x location
+	 * @param someY: y location
+	 * @param someGrid: grid with blanks to show
 	 */
-	private void setup(int difficulty)
+	public Puzzle(int someX, int someY, Grid someGrid)
 	{
-		if (difficulty == 0)
-			grid = new EasyGrid();
-		else if (difficulty == 1)
-			grid = new MediumGrid();
-		else grid = new HardGrid();
-		int startX = x+6;
-		int startY = y+6;
+		x = someX;
+		y = someY;
+		setup(someGrid);
+	}
+	
+	/**
+	 * Will set up puzzle around a grid. The box values and locations
+	 * will be initialized here.
+	 * @param someGrid
+	 */
+	private void setup(Grid someGrid)
+	{
+		grid = someGrid;
+		values = new Board(grid.grid);
+		changeable = new boolean[values.cellCount()];
+		placeBoxes();
 		
-		// create our array of box objects
-		for (int a = 0; a < boxArray.length; a++)
+		for (int i = 0; i < values.cellCount(); i++)
 		{
-			for (int b = 0; b < boxArray.length; b++)
-			{
-				// convert int value to a String
-				String val = Integer.toString(grid.grid[a][b]);
-				if (val.equals("0")) val = "";
-				boxArray[a][b] = new Box(startX+(a*BOX_WIDTH), startY+(b*BOX_WIDTH), val, Color.BLACK);
-			}
+			changeable[i] = values.get(i) == 0;
+		}
+	}
+	
+	/**
+	 * Works out the size and screen location of each box, fitting the
+	 * board in the middle of the border whatever its order
+	 */
+	private void placeBoxes()
+	{
+		boxWidth = (WIDTH - 13) / values.size();
+		int margin = (WIDTH - boxWidth * values.size()) / 2;
+		int startX = x+margin;
+		int startY = y+margin;
+		boxX = new int[values.cellCount()];
+		boxY = new int[values.cellCount()];
+		
+		for (int i = 0; i < values.cellCount(); i++)
+		{
+			boxX[i] = startX + values.columnOf(i) * boxWidth;
+			boxY[i] = startY + values.rowOf(i) * boxWidth;
 		}
 	}
 	
+	/**
+	 * Accessor for the number of boxes
+	 * @return number of cells of the board
+	 */
+	public int cellCount()
+	{
+		return values.cellCount();
+	}
+	
+	/**
+	 * Finds the box under a point on the screen
+	 * @param someX
+	 * @param someY
+	 * @return cell index of the box, -1 if the point isn't on any box
+	 */
+	public int cellAt(int someX, int someY)
+	{
+		int a = someX - boxX[0];
+		int b = someY - boxY[0];
+		if (a < 0 || b < 0) return -1;
+		
+		a /= boxWidth;
+		b /= boxWidth;
+		if (a >= values.size() || b >= values.size()) return -1;
+		return values.cell(a, b);
+	}
+	
 	/**
 	 * Determine if a click is inside a particular box
 	 * @param someX
@@ -73,22 +150,34 @@ public class Puzzle
 		return (someX >= x && someX <= (x+WIDTH) && someY >= y && someY <= (y+WIDTH));
 	}
 	
+	/**
+	 * Area covered by the puzzle, including its border
+	 * @return bounds of the puzzle
+	 */
+	public Rectangle getBounds()
+	{
+		return new Rectangle(x, y, WIDTH + 1, WIDTH + 1);
+	}
+	
+	/**
+	 * Area covered by one box of the puzzle
+	 * @param i: cell index
+	 * @return bounds of the box
+	 */
+	public Rectangle cellBounds(int i)
+	{
+		return Box.getBounds(boxX[i], boxY[i], boxWidth);
+	}
+	
 	/**
 	 * Determines if a given box is able to be changed and updates
 	 * its value if it is changeable
-	 * @param a
-	 * @param b
+	 * @param i: cell index
 	 * @param value
 	 */
-	public void updateValue(int a, int b, int value)
+	public void updateValue(int i, int value)
 	{
-		if (boxArray[a][b].changeable == true)
-		{
-			String stringVal = Integer.toString(value);
-			if (stringVal.equals("0")) stringVal = "";
-			boxArray[a][b] = new Box(106+a*BOX_WIDTH, 146+b*BOX_WIDTH, stringVal, Color.BLUE);
-			boxArray[a][b].changeable = true;
-		}
+		if (changeable[i]) values.set(i, value);
 	}
 	
 	/**
@@ -97,50 +186,61 @@ public class Puzzle
 	 */
 	private void drawBorder(Graphics pane)
 	{	
-		pane.setColor(Color.BLACK);
-		pane.fillRoundRect(x, y, WIDTH, WIDTH, 15, 15);
-		
-		pane.setColor(Color.ORANGE);
-		pane.drawRoundRect(x, y, WIDTH, WIDTH, 15, 15);
+		if (border == null) border = Theme.roundRect(WIDTH, WIDTH, 15, Color.BLACK, Color.ORANGE);
+		pane.drawImage(border, x, y, null);
 	}
 	
 	/**
-	 * Draws alternate 3x3 shades on puzzle to be able to tell each
-	 * sub-square apart from each other
+	 * Draws alternate shades on puzzle, in a checkerboard of the boxes,
+	 * to be able to tell each sub-square apart from each other
 	 * @param pane
 	 */
 	private void drawShades(Graphics pane)
 	{
-		final int SIZE = 128;
-		pane.setColor(new Color(208, 238, 242));
-		pane.fillRect(x+8, y+8, SIZE, SIZE);
-		pane.fillRect(x+SIZE+SIZE+8, y+SIZE+SIZE+8, SIZE, SIZE);
-		pane.fillRect(x+SIZE+SIZE+8, y+8, SIZE, SIZE);
-		pane.fillRect(x+8, y+SIZE+SIZE+8, SIZE, SIZE);
-		pane.fillRect(x+8+SIZE, y+8+SIZE, SIZE, SIZE);
-		
-		pane.setColor(new Color(161, 207, 214));
-		pane.fillRect(x+8+SIZE, y+8, SIZE, SIZE);
-		pane.fillRect(x+8, y+SIZE+8, SIZE, SIZE);
-		pane.fillRect(x+SIZE+SIZE+8, y+SIZE+8, SIZE, SIZE);
-		pane.fillRect(x+SIZE+8, y+SIZE+SIZE+8, SIZE, SIZE);
+		int n = values.order();
+		int size = n * boxWidth;
+		for (int a = 0; a < n; a++)
+		{
+			for (int b = 0; b < n; b++)
+			{
+				pane.setColor((a + b) % 2 == 0 ? Theme.LIGHT_SHADE : Theme.DARK_SHADE);
+				pane.fillRect(boxX[0]+1 + a*size, boxY[0]+1 + b*size, size - 1, size - 1);
+			}
+		}
 	}
 	
 	/**
-	 * Paint boxArray, border, and shades
+	 * Paint border, shades, the boxes and the givens. None of these
+	 * change while the puzzle is played, so they are meant to be drawn
+	 * once into a layer image rather than on every paint
 	 * @param pane
 	 */
-	public void paint(Graphics pane)
+	public void paintLayer(Graphics pane)
 	{
 		drawBorder(pane);
 		drawShades(pane);
 		
-		// draw each Box object
-		for (int x = 0; x < boxArray.length; x++)
+		// draw each box, with its number only if it is a given
+		for (int i = 0; i < values.cellCount(); i++)
+		{
+			Box.paint(pane, boxX[i], boxY[i], boxWidth, changeable[i] ? 0 : values.get(i), Color.BLACK);
+		}
+	}
+	
+	/**
+	 * Paint the numbers the user has entered, on top of paintLayer
+	 * @param pane
+	 */
+	public void paint(Graphics pane)
+	{
+		// nothing to do if the puzzle is outside the area being painted
+		if (!pane.hitClip(x, y, WIDTH + 1, WIDTH + 1)) return;
+		
+		for (int i = 0; i < values.cellCount(); i++)
 		{
-			for (int y = 0; y < boxArray.length; y++)
+			if (changeable[i] && values.get(i) != 0)
 			{
-				boxArray[x][y].paint(pane);
+				Box.paintValue(pane, boxX[i], boxY[i], boxWidth, values.get(i), Color.BLUE);
 			}
 		}
 	}
@@ -0,0 +1,299 @@
+/**
+ * @author Adam Jilling
+ *
+ * A file of pre-generated puzzles that can be opened instantly, no matter
+ * how many puzzles it holds. The file is memory-mapped rather than read, so
+ * only the pages of the puzzles actually used are ever loaded, and finding
+ * a puzzle is a simple offset calculation.
+ *
+ * File layout, all numbers big-endian:
+ *   header, 64 bytes: magic "SDKB", version, record size, then for each
+ *     of the 3 difficulties the index of its first record and its count
+ *     as longs, then zero padding
+ *   records, 52 bytes each, grouped by difficulty:
+ *     41 bytes of solution digits, two cells per byte, low nibble first
+ *     11 bytes with one bit per cell that is given in the puzzle
+ * Cells are numbered the same way as in Board.
+ *
+ * Can be run on its own to create a bank:
+ *   java PuzzleBank [file] [count per difficulty] [threads]
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+public class PuzzleBank
+{
+	/**
+	 * MAGIC: first four bytes of every bank file, "SDKB"
+	 * VERSION: version of the file layout
+	 * HEADER: size of the header in bytes
+	 * RECORD: size of one puzzle record in bytes
+	 * CHUNK: records per mapped region, regions are kept under 1 GB
+	 *   because a single mapping can't be larger than 2 GB
+	 * BATCH: puzzles generated at a time when creating a bank
+	 */
+	private static final int MAGIC = 0x53444B42;
+	private static final int VERSION = 1;
+	private static final int HEADER = 64;
+	private static final int RECORD = 52;
+	private static final int CHUNK = (1 << 30) / RECORD;
+	private static final int BATCH = 10000;
+
+	/**
+	 * first, counts: index of the first record and number of records
+	 *   for each difficulty
+	 * chunks: mapped regions of the record area
+	 */
+	private final long[] first = new long[3];
+	private final long[] counts = new long[3];
+	private final MappedByteBuffer[] chunks;
+
+	/**
+	 * Maps a bank file into memory. Nothing but the header is read here
+	 * @param file: bank file to open
+	 * @throws IOException if the file can't be read or is not a bank
+	 */
+	public PuzzleBank(Path file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			while (header.hasRemaining() && channel.read(header) >= 0) {}
+			header.flip();
+			if (header.remaining() < HEADER || header.getInt() != MAGIC)
+				throw new IOException(file + " is not a puzzle bank");
+			if (header.getInt() != VERSION || header.getInt() != RECORD)
+				throw new IOException(file + " has an unsupported bank version");
+
+			long records = 0;
+			for (int d = 0; d < 3; d++)
+			{
+				first[d] = header.getLong();
+				counts[d] = header.getLong();
+				records = Math.max(records, first[d] + counts[d]);
+			}
+			if (channel.size() < HEADER + records * RECORD)
+				throw new IOException(file + " is truncated");
+
+			// map the records in regions small enough for one buffer each
+			chunks = new MappedByteBuffer[(int)((records + CHUNK - 1) / CHUNK)];
+			for (int c = 0; c < chunks.length; c++)
+			{
+				long start = (long)c * CHUNK;
+				long length = Math.min(CHUNK, records - start) * RECORD;
+				chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + start * RECORD, length);
+			}
+		}
+	}
+
+	/**
+	 * Accessor for the number of puzzles of a difficulty
+	 * @param difficulty: 0 for easy, 1 for medium, 2 for hard
+	 * @return number of puzzles in the bank
+	 */
+	public long count(int difficulty)
+	{
+		return counts[difficulty];
+	}
+
+	/**
+	 * Reads one puzzle out of the bank
+	 * @param difficulty: 0 for easy, 1 for medium, 2 for hard
+	 * @param index: which puzzle, from 0 to count(difficulty) - 1
+	 * @return the stored puzzle
+	 */
+	public Grid get(int difficulty, long index)
+	{
+		if (index < 0 || index >= counts[difficulty])
+			throw new IndexOutOfBoundsException("puzzle " + index + " of " + counts[difficulty]);
+
+		long record = first[difficulty] + index;
+		ByteBuffer chunk = chunks[(int)(record / CHUNK)];
+		int at = (int)(record % CHUNK) * RECORD;
+
+		Board grid = new Board();
+		Board answer = new Board();
+		for (int i = 0; i < Board.CELLS; i++)
+		{
+			int packed = chunk.get(at + i / 2);
+			int digit = (i % 2 == 0 ? packed : packed >> 4) & 0xF;
+			boolean given = (chunk.get(at + 41 + i / 8) & (1 << (i % 8))) != 0;
+
+			answer.set(i, digit);
+			if (given) grid.set(i, digit);
+		}
+		return new StoredGrid(grid, answer);
+	}
+
+	/**
+	 * Reads a random puzzle out of the bank
+	 * @param difficulty: 0 for easy, 1 for medium, 2 for hard
+	 * @param random: random source owned by the calling thread
+	 * @return a stored puzzle, or null if there are none of this difficulty
+	 */
+	public Grid random(int difficulty, SplittableRandom random)
+	{
+		if (counts[difficulty] == 0) return null;
+		return get(difficulty, random.nextLong(counts[difficulty]));
+	}
+
+	/**
+	 * Writes puzzles that are already in memory to a new bank file
+	 * @param file: file to create or overwrite
+	 * @param puzzles: puzzles for each of the 3 difficulties
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(Path file, Grid[][] puzzles) throws IOException
+	{
+		long[] sizes = new long[3];
+		for (int d = 0; d < 3; d++)
+		{
+			sizes[d] = puzzles[d].length;
+		}
+
+		try (FileChannel channel = open(file, sizes))
+		{
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BATCH * RECORD);
+			for (int d = 0; d < 3; d++)
+			{
+				append(channel, buffer, puzzles[d]);
+			}
+		}
+	}
+
+	/**
+	 * Generates puzzles and writes them to a new bank file, a batch at a
+	 * time, so banks much larger than the heap can be created
+	 * @param file: file to create or overwrite
+	 * @param count: number of puzzles for each difficulty
+	 * @param batch: workers used to generate the puzzles
+	 * @throws IOException if the file can't be written
+	 */
+	public static void create(Path file, long count, PuzzleBatch batch) throws IOException
+	{
+		try (FileChannel channel = open(file, new long[] {count, count, count}))
+		{
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BATCH * RECORD);
+			for (int d = 0; d < 3; d++)
+			{
+				for (long done = 0; done < count; done += BATCH)
+				{
+					append(channel, buffer, batch.generate(d, (int)Math.min(BATCH, count - done)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a bank file and writes its header
+	 * @param file
+	 * @param sizes: number of puzzles of each difficulty that will follow
+	 * @return channel positioned at the first record
+	 * @throws IOException
+	 */
+	private static FileChannel open(Path file, long[] sizes) throws IOException
+	{
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		header.putInt(MAGIC).putInt(VERSION).putInt(RECORD);
+		long start = 0;
+		for (int d = 0; d < 3; d++)
+		{
+			header.putLong(start).putLong(sizes[d]);
+			start += sizes[d];
+		}
+		header.position(HEADER).flip();
+		while (header.hasRemaining()) channel.write(header);
+		return channel;
+	}
+
+	/**
+	 * Encodes puzzles into records and writes them to the end of the file
+	 * @param channel
+	 * @param buffer: reusable buffer with room for a batch of records
+	 * @param puzzles
+	 * @throws IOException
+	 */
+	private static void append(FileChannel channel, ByteBuffer buffer, Grid[] puzzles) throws IOException
+	{
+		for (int p = 0; p < puzzles.length; p++)
+		{
+			encode(puzzles[p], buffer);
+			if (!buffer.hasRemaining() || p == puzzles.length - 1)
+			{
+				buffer.flip();
+				while (buffer.hasRemaining()) channel.write(buffer);
+				buffer.clear();
+			}
+		}
+	}
+
+	/**
+	 * Packs one puzzle into a record
+	 * @param puzzle
+	 * @param buffer: buffer to add the record to
+	 */
+	private static void encode(Grid puzzle, ByteBuffer buffer)
+	{
+		int at = buffer.position();
+		for (int i = 0; i < RECORD; i++)
+		{
+			buffer.put(at + i, (byte)0);
+		}
+
+		for (int i = 0; i < Board.CELLS; i++)
+		{
+			int digit = puzzle.answerGrid.get(i);
+			int packed = buffer.get(at + i / 2) | (i % 2 == 0 ? digit : digit << 4);
+			buffer.put(at + i / 2, (byte)packed);
+
+			if (puzzle.grid.get(i) != 0)
+			{
+				int mask = buffer.get(at + 41 + i / 8) | (1 << (i % 8));
+				buffer.put(at + 41 + i / 8, (byte)mask);
+			}
+		}
+		buffer.position(at + RECORD);
+	}
+
+	/**
+	 * A grid read back from a bank instead of being generated
+	 */
+	private static class StoredGrid extends Grid
+	{
+		StoredGrid(Board grid, Board answer)
+		{
+			super(grid, answer);
+		}
+	}
+
+	/**
+	 * Creates a bank file of freshly generated puzzles
+	 * @param args: file name, count per difficulty, number of threads
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		Path file = Paths.get(args.length > 0 ? args[0] : "puzzles.bank");
+		long count = args.length > 1 ? Long.parseLong(args[1]) : 100000;
+		int threads = args.length > 2 ? Integer.parseInt(args[2])
+				: Runtime.getRuntime().availableProcessors();
+
+		long begin = System.nanoTime();
+		PuzzleBatch batch = new PuzzleBatch(threads);
+		create(file, count, batch);
+		batch.shutdown();
+
+		System.out.printf("wrote %d puzzles to %s in %.3f s%n",
+				3 * count, file, (System.nanoTime() - begin) / 1e9);
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * @author Adam Jilling
+ *
+ * Generates many puzzles at once for offline use. A fixed pool of worker
+ * threads takes the puzzles CHUNK at a time from a shared counter, so a
+ * worker that drew quick puzzles goes on to take more instead of sitting
+ * idle while the others finish. Each worker builds its puzzles with its
+ * thread's own Generator, so workers never share a random source or
+ * scratch memory. The grids are made by Grid.create and
+ * are exactly what EasyGrid, MediumGrid and HardGrid would produce. The
+ * IDs of a batch are all picked up front, so the same seeds give the same
+ * puzzles however many threads build them.
+ *
+ * Can also be run on its own without a window:
+ *   java PuzzleBatch [count per difficulty] [threads]
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PuzzleBatch
+{
+	/**
+	 * CHUNK: number of puzzles a worker takes from the counter at a time
+	 * threads: number of worker threads
+	 * pool: the worker threads
+	 * seeds: picks the puzzle IDs
+	 */
+	private static final int CHUNK = 16;
+	private final int threads;
+	private final ExecutorService pool;
+	private final SplittableRandom seeds;
+
+	/**
+	 * Constructor
+	 * @param someThreads: number of worker threads to use
+	 */
+	public PuzzleBatch(int someThreads)
+	{
+		this(someThreads, new SplittableRandom());
+	}
+
+	/**
+	 * Constructor
+	 * @param someThreads: number of worker threads to use
+	 * @param someSeeds: source of the puzzle IDs
+	 */
+	public PuzzleBatch(int someThreads, SplittableRandom someSeeds)
+	{
+		threads = someThreads;
+		seeds = someSeeds;
+		pool = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Generates a batch of puzzles of one difficulty
+	 * @param difficulty: 0 for easy, 1 for medium, 2 for hard
+	 * @param count: number of puzzles to generate
+	 * @return the generated grids
+	 */
+	public Grid[] generate(final int difficulty, final int count)
+	{
+		final Grid[] result = new Grid[count];
+		final long[] ids = new long[count];
+		for (int i = 0; i < count; i++)
+		{
+			ids[i] = Grid.newId(difficulty, Board.ORDER, seeds.nextLong());
+		}
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+		// each worker takes the next CHUNK puzzles until none are left
+		final AtomicInteger next = new AtomicInteger();
+		for (int t = 0; t < threads; t++)
+		{
+			tasks.add(new Callable<Void>()
+			{
+				public Void call()
+				{
+					Generator generator = Generator.local();
+					for (int from = next.getAndAdd(CHUNK); from < count; from = next.getAndAdd(CHUNK))
+					{
+						int to = Math.min(count, from + CHUNK);
+						for (int i = from; i < to; i++)
+						{
+							result[i] = Grid.create(ids[i], generator);
+						}
+					}
+					return null;
+				}
+			});
+		}
+
+		try
+		{
+			for (Future<Void> done : pool.invokeAll(tasks))
+			{
+				done.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("puzzle generation interrupted", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("puzzle generation failed", e.getCause());
+		}
+		return result;
+	}
+
+	/**
+	 * Stops the worker threads once the current batches are done
+	 */
+	public void shutdown()
+	{
+		pool.shutdown();
+	}
+
+	/**
+	 * Generates puzzles of every difficulty and reports the throughput
+	 * @param args: count per difficulty, number of threads
+	 */
+	public static void main(String[] args)
+	{
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1])
+				: Runtime.getRuntime().availableProcessors();
+		String[] names = {"Easy", "Medium", "Hard"};
+
+		PuzzleBatch batch = new PuzzleBatch(threads);
+		for (int difficulty = 0; difficulty < 3; difficulty++)
+		{
+			long begin = System.nanoTime();
+			batch.generate(difficulty, count);
+			double seconds = (System.nanoTime() - begin) / 1e9;
+
+			System.out.printf("%-6s %d puzzles on %d threads in %.3f s, %.0f puzzles/s%n",
+					names[difficulty], count, threads, seconds, count / seconds);
+		}
+		batch.shutdown();
+	}
+}
@@ -0,0 +1,207 @@
+/**
+ * @author Adam Jilling
+ *
+ * Writes puzzles as text, one per line in the usual 81 character format:
+ * the cells row by row from the top left, digits 1 to 9, with '.' for a
+ * blank. Larger boards, which only come from an ID, are written the same
+ * way with letters for the digits past 9. With solutions turned on, each
+ * line is followed by a ',' and the 81 digits of the solution. Lines are
+ * built straight into one reusable direct buffer, which is written out
+ * whenever it fills up, so no strings are made along the way.
+ *
+ * Can be run on its own to generate puzzles without a window:
+ *   java PuzzleStream [--count n] [--difficulty easy|medium|hard]
+ *     [--seed n] [--threads n] [--solutions] [--out file] [--id hex]
+ * Puzzles go to standard output unless a file is given, and the
+ * throughput is reported on standard error. The same seed always gives
+ * the same puzzles, whatever the number of threads. With an ID, such as
+ * the one in the game's title bar, just that one puzzle is written, at the
+ * order and difficulty the ID holds.
+ */
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+public class PuzzleStream
+{
+	/**
+	 * BUFFER: size of the output buffer in bytes
+	 * BATCH: number of puzzles generated at a time
+	 * REPORT: time between throughput reports, in nanoseconds
+	 * NAMES: name of each difficulty
+	 * channel: where the lines are written
+	 * buffer: lines not written yet
+	 * solutions: true to add the solution to each line
+	 */
+	private static final int BUFFER = 1 << 16;
+	private static final int BATCH = 1024;
+	private static final long REPORT = 5000000000L;
+	private static final String[] NAMES = {"easy", "medium", "hard"};
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+	private final boolean solutions;
+
+	/**
+	 * Constructor
+	 * @param someChannel: channel to write to
+	 * @param someSolutions: true to add the solution to each line
+	 */
+	public PuzzleStream(FileChannel someChannel, boolean someSolutions)
+	{
+		channel = someChannel;
+		solutions = someSolutions;
+	}
+
+	/**
+	 * Adds one puzzle to the output
+	 * @param grid: puzzle to write
+	 * @throws IOException
+	 */
+	public void write(Grid grid) throws IOException
+	{
+		// one line, newline included
+		int cells = grid.grid.cellCount();
+		if (buffer.remaining() < (solutions ? 2 * cells + 2 : cells + 1)) flush();
+
+		put(grid.grid, buffer);
+		if (solutions)
+		{
+			buffer.put((byte)',');
+			put(grid.answerGrid, buffer);
+		}
+		buffer.put((byte)'\n');
+	}
+
+	/**
+	 * Writes out everything added so far
+	 * @throws IOException
+	 */
+	public void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Adds one character per cell of a board to a buffer, row by row
+	 * @param board
+	 * @param buffer
+	 */
+	public static void put(Board board, ByteBuffer buffer)
+	{
+		int size = board.size();
+		for (int b = 0; b < size; b++)
+		{
+			for (int a = 0; a < size; a++)
+			{
+				int digit = board.get(a, b);
+				if (digit == 0) buffer.put((byte)'.');
+				else if (digit <= 9) buffer.put((byte)('0' + digit));
+				else buffer.put((byte)('A' + digit - 10));
+			}
+		}
+	}
+
+	/**
+	 * Turns a difficulty name or number into a difficulty
+	 * @param name: easy, medium, hard, or 0 to 2
+	 * @return 0 for easy, 1 for medium, 2 for hard
+	 */
+	private static int difficulty(String name)
+	{
+		for (int d = 0; d < NAMES.length; d++)
+		{
+			if (NAMES[d].equalsIgnoreCase(name) || String.valueOf(d).equals(name)) return d;
+		}
+		throw new IllegalArgumentException("unknown difficulty " + name);
+	}
+
+	/**
+	 * Generates puzzles and streams them out, see the top of this file
+	 * @param args: flags
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		long count = 1000;
+		int level = -1;
+		Long seed = null;
+		Long id = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean withSolutions = false;
+		String out = null;
+
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("--count")) count = Long.parseLong(args[++i]);
+			else if (args[i].equals("--difficulty")) level = difficulty(args[++i]);
+			else if (args[i].equals("--seed")) seed = Long.parseLong(args[++i]);
+			else if (args[i].equals("--threads")) threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--solutions")) withSolutions = true;
+			else if (args[i].equals("--out")) out = args[++i];
+			else if (args[i].equals("--id")) id = Long.parseUnsignedLong(args[++i], 16);
+			else throw new IllegalArgumentException("unknown flag " + args[i]);
+		}
+
+		// an ID holds its own difficulty, which a --difficulty must agree with
+		if (id != null && level >= 0 && level != Grid.difficultyOf(id))
+			throw new IllegalArgumentException("--id " + Long.toHexString(id) + " is a "
+					+ NAMES[Grid.difficultyOf(id)] + " puzzle, not " + NAMES[level]);
+
+		FileChannel channel = out == null ? new FileOutputStream(FileDescriptor.out).getChannel()
+				: FileChannel.open(Paths.get(out), StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		PuzzleStream stream = new PuzzleStream(channel, withSolutions);
+		if (id != null)
+		{
+			stream.write(Grid.create(id, Generator.local()));
+			stream.flush();
+			channel.close();
+			return;
+		}
+		if (level < 0) level = 1;
+		PuzzleBatch batch = seed == null ? new PuzzleBatch(threads)
+				: new PuzzleBatch(threads, new SplittableRandom(seed));
+
+		long begin = System.nanoTime();
+		long reported = begin;
+		long written = 0;
+		try
+		{
+			while (written < count)
+			{
+				Grid[] grids = batch.generate(level, (int)Math.min(BATCH, count - written));
+				for (int i = 0; i < grids.length; i++)
+				{
+					stream.write(grids[i]);
+				}
+				written += grids.length;
+
+				long now = System.nanoTime();
+				if (now - reported >= REPORT)
+				{
+					reported = now;
+					System.err.printf("%d puzzles, %.0f puzzles/s%n",
+							written, written / ((now - begin) / 1e9));
+				}
+			}
+			stream.flush();
+		}
+		finally
+		{
+			batch.shutdown();
+			channel.close();
+		}
+
+		double seconds = (System.nanoTime() - begin) / 1e9;
+		System.err.printf("wrote %d puzzles on %d threads in %.3f s, %.0f puzzles/s%n",
+				written, threads, seconds, written / seconds);
+	}
+}
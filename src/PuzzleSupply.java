@@ -0,0 +1,179 @@
+/**
+ * @author Adam Jilling
+ *
+ * Keeps a few ready-made puzzles of each difficulty on hand so a new game
+ * never has to wait for one to be generated. One background thread per
+ * difficulty refills its queue whenever a puzzle is taken, and only if
+ * that queue is empty is a puzzle made on the spot. All the puzzles are
+ * of one board order.
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class PuzzleSupply
+{
+	/**
+	 * NAMES: difficulty names, used for the thread names
+	 * bank: pre-generated puzzles to draw from, or null to generate
+	 * order: board order of the puzzles
+	 * queues: ready puzzles for each difficulty
+	 * refills: number of puzzles each refill thread has made
+	 * lastRefill, totalRefill: time taken to make a puzzle, in nanoseconds
+	 * fallbacks: number of times a queue was empty when asked for a puzzle
+	 */
+	private static final String[] NAMES = {"easy", "medium", "hard"};
+	private final PuzzleBank bank;
+	private final int order;
+	private final BlockingQueue<Grid>[] queues;
+	private final long[] refills = new long[3];
+	private final long[] lastRefill = new long[3];
+	private final long[] totalRefill = new long[3];
+	private final long[] fallbacks = new long[3];
+
+	/**
+	 * Constructor starts the refill threads for classic puzzles
+	 * @param someBank: puzzle bank to draw from, or null to generate puzzles
+	 * @param depth: number of puzzles to keep ready for each difficulty
+	 */
+	public PuzzleSupply(PuzzleBank someBank, int depth)
+	{
+		this(someBank, Board.ORDER, depth);
+	}
+
+	/**
+	 * Constructor starts the refill threads
+	 * @param someBank: puzzle bank of classic puzzles to draw from, or null
+	 *   to generate puzzles. Only used if the order is Board.ORDER
+	 * @param someOrder: board order of the puzzles
+	 * @param depth: number of puzzles to keep ready for each difficulty
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public PuzzleSupply(PuzzleBank someBank, int someOrder, int depth)
+	{
+		bank = someOrder == Board.ORDER ? someBank : null;
+		order = someOrder;
+		queues = new BlockingQueue[3];
+		SplittableRandom seeds = new SplittableRandom();
+
+		for (int d = 0; d < 3; d++)
+		{
+			queues[d] = new ArrayBlockingQueue<Grid>(depth);
+			Thread refill = new Thread(new Refill(d, new Generator(seeds.split())),
+					"puzzle-supply-" + NAMES[d]);
+			refill.setDaemon(true);
+			refill.setPriority(Thread.MIN_PRIORITY);
+			refill.start();
+		}
+	}
+
+	/**
+	 * Takes a ready puzzle, making one right away only if none are ready
+	 * @param difficulty: 0 for easy, 1 for medium, 2 for hard
+	 * @return a new puzzle
+	 */
+	public Grid take(int difficulty)
+	{
+		Grid grid = queues[difficulty].poll();
+		if (grid != null) return grid;
+
+		synchronized (this)
+		{
+			fallbacks[difficulty]++;
+		}
+		return make(difficulty, Generator.local());
+	}
+
+	/**
+	 * Accessor for the number of puzzles ready
+	 * @param difficulty
+	 * @return puzzles waiting in the queue
+	 */
+	public int depth(int difficulty)
+	{
+		return queues[difficulty].size();
+	}
+
+	/**
+	 * Accessor for how long the last background puzzle took to make
+	 * @param difficulty
+	 * @return time in nanoseconds, 0 if none made yet
+	 */
+	public synchronized long lastRefillTime(int difficulty)
+	{
+		return lastRefill[difficulty];
+	}
+
+	/**
+	 * Accessor for how long background puzzles take to make on average
+	 * @param difficulty
+	 * @return time in nanoseconds, 0 if none made yet
+	 */
+	public synchronized long averageRefillTime(int difficulty)
+	{
+		return refills[difficulty] == 0 ? 0 : totalRefill[difficulty] / refills[difficulty];
+	}
+
+	/**
+	 * Accessor for how often a puzzle had to be made on the spot
+	 * @param difficulty
+	 * @return number of times the queue was empty
+	 */
+	public synchronized long fallbackCount(int difficulty)
+	{
+		return fallbacks[difficulty];
+	}
+
+	/**
+	 * Makes one puzzle, from the bank if it has any of this difficulty
+	 * @param difficulty
+	 * @param generator: generator owned by the calling thread
+	 * @return a new puzzle
+	 */
+	private Grid make(int difficulty, Generator generator)
+	{
+		Grid grid = bank == null ? null : bank.random(difficulty, generator.seeds());
+		return grid != null ? grid : Grid.create(difficulty, order, generator);
+	}
+
+	/**
+	 * Keeps one queue full, waiting whenever it is full
+	 */
+	private class Refill implements Runnable
+	{
+		private final int difficulty;
+		private final Generator generator;
+
+		Refill(int someDifficulty, Generator someGenerator)
+		{
+			difficulty = someDifficulty;
+			generator = someGenerator;
+		}
+
+		public void run()
+		{
+			try
+			{
+				while (true)
+				{
+					long begin = System.nanoTime();
+					Grid grid = make(difficulty, generator);
+					long time = System.nanoTime() - begin;
+
+					synchronized (PuzzleSupply.this)
+					{
+						refills[difficulty]++;
+						lastRefill[difficulty] = time;
+						totalRefill[difficulty] += time;
+					}
+					queues[difficulty].put(grid);
+				}
+			}
+			catch (InterruptedException e)
+			{
+				// the supply is no longer needed
+			}
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/**
+ * @author Adam Jilling
+ *
+ * Loads images before they are needed. Toolkit images are only decoded
+ * once something tries to draw them, and then in the background, so the
+ * first frames are drawn without them. Here the images are decoded on a
+ * background thread as soon as the game starts and converted to the
+ * screen's own format so drawing them is a plain copy. Anything that
+ * needs an image waits for the decoding to finish.
+ */
+
+import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+
+import javax.imageio.ImageIO;
+
+public class Resources
+{
+	/**
+	 * BACKGROUND: file name of the background image
+	 * ready: released once loading has finished, whether or not it worked
+	 * background: the decoded background image, null if it couldn't be read
+	 * started: true once load has been called
+	 */
+	private static final String BACKGROUND = "background.jpg";
+	private static final CountDownLatch ready = new CountDownLatch(1);
+	private static volatile BufferedImage background;
+	private static boolean started;
+
+	/**
+	 * Starts decoding the images on a background thread, only the
+	 * first call does anything
+	 */
+	public static synchronized void load()
+	{
+		if (started) return;
+		started = true;
+
+		Thread loader = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				try
+				{
+					background = toCompatible(read(BACKGROUND));
+					Startup.mark("background decoded");
+				}
+				catch (IOException e)
+				{
+					System.err.println("Could not load " + BACKGROUND + ": " + e.getMessage());
+				}
+				finally
+				{
+					ready.countDown();
+				}
+			}
+		}, "resource-loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+
+	/**
+	 * Waits for the images to be decoded, starting the decoding
+	 * if nothing has yet
+	 * @return the background image, or null if it couldn't be read
+	 */
+	public static BufferedImage background()
+	{
+		load();
+		boolean interrupted = false;
+		while (true)
+		{
+			try
+			{
+				ready.await();
+				break;
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+		return background;
+	}
+
+	/**
+	 * Reads an image from the working directory, or from the
+	 * classpath if it isn't there
+	 * @param name: file name
+	 * @return decoded image
+	 * @throws IOException if the image can't be found or read
+	 */
+	private static BufferedImage read(String name) throws IOException
+	{
+		BufferedImage image;
+		File file = new File(name);
+		if (file.isFile())
+		{
+			image = ImageIO.read(file);
+		}
+		else
+		{
+			InputStream in = Resources.class.getResourceAsStream("/" + name);
+			if (in == null) throw new IOException(name + " not found");
+			try
+			{
+				image = ImageIO.read(in);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+
+		if (image == null) throw new IOException(name + " is not an image");
+		return image;
+	}
+
+	/**
+	 * Copies an image into the pixel format of the screen
+	 * @param image
+	 * @return image that can be drawn without converting pixels
+	 */
+	private static BufferedImage toCompatible(BufferedImage image)
+	{
+		if (GraphicsEnvironment.isHeadless()) return image;
+
+		BufferedImage compatible = GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.getDefaultScreenDevice().getDefaultConfiguration()
+				.createCompatibleImage(image.getWidth(), image.getHeight(), Transparency.OPAQUE);
+		Graphics g = compatible.getGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return compatible;
+	}
+}
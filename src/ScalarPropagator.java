@@ -0,0 +1,102 @@
+/**
+ * @author Adam Jilling
+ *
+ * BatchPropagator that works on one board at a time, for when the vector
+ * module isn't available.
+ */
+
+public class ScalarPropagator extends BatchPropagator
+{
+	/**
+	 * Constructor
+	 * @param lanes: number of boards to work on at once
+	 */
+	public ScalarPropagator(int lanes)
+	{
+		super(lanes);
+	}
+
+	protected boolean propagate(int i)
+	{
+		boolean changed = false;
+		int base = i * lanes;
+		int row = UNITS_OF[i][0] * lanes;
+		int column = UNITS_OF[i][1] * lanes;
+		int box = UNITS_OF[i][2] * lanes;
+		for (int lane = 0; lane < lanes; lane++)
+		{
+			if (bits[base + lane] != 0) continue;
+
+			int used = units[row + lane] | units[column + lane] | units[box + lane];
+			int candidates = ~used & ALL;
+			if (candidates == 0) dead[lane] = 1;
+			else if ((candidates & (candidates - 1)) == 0)
+			{
+				bits[base + lane] = candidates;
+				units[row + lane] |= candidates;
+				units[column + lane] |= candidates;
+				units[box + lane] |= candidates;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	protected boolean propagateUnit(int u)
+	{
+		boolean changed = false;
+		int[] cells = CELLS_OF[u];
+		int unit = u * lanes;
+		for (int lane = 0; lane < lanes; lane++)
+		{
+			if (dead[lane] != 0 || units[unit + lane] == ALL) continue;
+
+			// which digits can go in one cell of the unit, and which in two or more
+			int once = 0, twice = 0;
+			for (int k = 0; k < Board.SIZE; k++)
+			{
+				int candidates = candidates(cells[k], lane);
+				twice |= once & candidates;
+				once |= candidates;
+			}
+			if ((once | units[unit + lane]) != ALL)
+			{
+				dead[lane] = 1;
+				continue;
+			}
+
+			int hidden = once & ~twice;
+			if (hidden == 0) continue;
+			for (int k = 0; k < Board.SIZE; k++)
+			{
+				int i = cells[k];
+				int place = candidates(i, lane) & hidden;
+				if (place == 0) continue;
+				if ((place & (place - 1)) != 0)
+				{
+					dead[lane] = 1;
+					break;
+				}
+				bits[i * lanes + lane] = place;
+				units[UNITS_OF[i][0] * lanes + lane] |= place;
+				units[UNITS_OF[i][1] * lanes + lane] |= place;
+				units[UNITS_OF[i][2] * lanes + lane] |= place;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * @param i: cell index
+	 * @param lane: which board
+	 * @return digits that can go in the cell, 0 if it is filled
+	 */
+	private int candidates(int i, int lane)
+	{
+		if (bits[i * lanes + lane] != 0) return 0;
+		int used = units[UNITS_OF[i][0] * lanes + lane] | units[UNITS_OF[i][1] * lanes + lane]
+				| units[UNITS_OF[i][2] * lanes + lane];
+		return ~used & ALL;
+	}
+}
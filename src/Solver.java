@@ -0,0 +1,69 @@
+/**
+ * @author Adam Jilling
+ *
+ * A way of solving Sudoku grids. Every engine finds the same number of
+ * solutions up to the limit asked for, and so the same solution when there
+ * is only one, but when there are several, which one is found first
+ * depends on the engine. Each is faster on different kinds of puzzles, so
+ * the one to use can be picked by name. Solvers keep their own working memory and are not safe
+ * to share between threads. Cells are numbered as in Board.
+ */
+
+public interface Solver
+{
+	/**
+	 * ENGINES: names of the engines create knows, the first is the default
+	 */
+	String[] ENGINES = {"bitmask", "dlx"};
+
+	/**
+	 * Solves a grid in place, blank cells are 0
+	 * @param board: grid to solve
+	 * @return true if a solution was found and written to board
+	 */
+	boolean solve(Board board);
+
+	/**
+	 * Solves a grid in place while counting its solutions
+	 * @param board: grid to solve, gets the first solution found
+	 * @param limit: maximum number of solutions to look for
+	 * @return number of solutions found, never more than limit
+	 */
+	int solve(Board board, int limit);
+
+	/**
+	 * Solves a grid in place whose singles were already filled in, given
+	 * the digits in each of its units. A solver that keeps such masks
+	 * starts from them, the others just solve the grid
+	 * @param board: grid to solve, gets the first solution found
+	 * @param used: mask of the digits in each row, then each column, then
+	 *   each box, numbered as in Board, digit d is bit d-1
+	 * @param limit: maximum number of solutions to look for
+	 * @return number of solutions found, never more than limit
+	 */
+	default int solve(Board board, int[] used, int limit)
+	{
+		return solve(board, limit);
+	}
+
+	/**
+	 * Counts the solutions of a grid without changing it, stopping as
+	 * soon as limit solutions are found
+	 * @param board: grid to check, blank cells are 0
+	 * @param limit: maximum number of solutions to look for
+	 * @return number of solutions found, never more than limit
+	 */
+	int countSolutions(Board board, int limit);
+
+	/**
+	 * Creates a solver
+	 * @param engine: bitmask for BitmaskSolver, dlx for DancingLinksSolver
+	 * @return new solver
+	 */
+	static Solver create(String engine)
+	{
+		if (engine.equals("bitmask")) return new BitmaskSolver();
+		else if (engine.equals("dlx")) return new DancingLinksSolver();
+		else throw new IllegalArgumentException("unknown solver engine " + engine);
+	}
+}
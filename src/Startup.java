@@ -0,0 +1,33 @@
+/**
+ * @author Adam Jilling
+ *
+ * Logs how long startup takes. Each checkpoint prints the time since
+ * the game was launched, so slow steps are easy to spot.
+ */
+
+public class Startup
+{
+	/**
+	 * BEGIN: time the class was first used, which Sudoku.main
+	 *   makes the first thing that happens
+	 */
+	private static final long BEGIN = System.nanoTime();
+
+	/**
+	 * Makes sure the clock is started
+	 */
+	public static void begin()
+	{
+		// loading the class sets BEGIN
+	}
+
+	/**
+	 * Logs a checkpoint
+	 * @param event: what just happened
+	 */
+	public static void mark(String event)
+	{
+		long millis = (System.nanoTime() - BEGIN) / 1000000;
+		System.out.println("[startup] " + millis + " ms: " + event);
+	}
+}
@@ -1,13 +1,18 @@
 /**
  * @author Adam Jilling
  * 
- * Instantiates a new game of Sudoku
+ * Instantiates a new game of Sudoku. The board order can be given as the
+ * first argument or the sudoku.order property: 3 for 9x9 (the default),
+ * 4 for 16x16 and 5 for 25x25
  */
 
 public class Sudoku
 {
 	public static void main(String[] args)
 	{
-		new Game(); // instantiate new Game object
+		Startup.begin();
+		Resources.load(); // start decoding images while the game is set up
+		int order = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("sudoku.order", Board.ORDER);
+		new Game(order); // instantiate new Game object
 	}
 }
@@ -0,0 +1,122 @@
+/**
+ * @author Adam Jilling
+ *
+ * Fonts, colors and text measurements shared by everything that paints.
+ * They are created once here instead of on every paint, so repainting the
+ * window doesn't create any new objects.
+ */
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+public class Theme
+{
+	/**
+	 * CELL_FONT: font of the numbers in a full size box
+	 * LIGHT_SHADE, DARK_SHADE: alternating colors of the boxes of the grid
+	 * SELECTED: background of a selected button
+	 * DIGITS: text to show for each cell value, blank for 0. Values past
+	 *   9 on the larger boards are shown as letters
+	 */
+	public static final Font CELL_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 20);
+	public static final Color LIGHT_SHADE = new Color(208, 238, 242);
+	public static final Color DARK_SHADE = new Color(161, 207, 214);
+	public static final Color SELECTED = new Color(250, 250, 250);
+	public static final String[] DIGITS = {"", "1", "2", "3", "4", "5", "6", "7", "8", "9",
+			"A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L", "M", "N", "O", "P"};
+
+	/**
+	 * fonts: font of the numbers for each box size, made on first use
+	 * digitWidths: width of each of DIGITS in the font for each box size
+	 * digitAscents: max ascent of the font for each box size
+	 * All three are indexed by box size and filled in together
+	 */
+	private static final Font[] fonts = new Font[Box.SIZE + 1];
+	private static final int[][] digitWidths = new int[Box.SIZE + 1][];
+	private static final int[] digitAscents = new int[Box.SIZE + 1];
+
+	/**
+	 * Font of the numbers in a box, scaled down from CELL_FONT for
+	 * boxes smaller than the full size
+	 * @param boxSize: width of the box, up to Box.SIZE
+	 * @return font
+	 */
+	public static Font cellFont(int boxSize)
+	{
+		if (fonts[boxSize] == null)
+		{
+			fonts[boxSize] = boxSize == Box.SIZE ? CELL_FONT
+					: CELL_FONT.deriveFont((float)Math.max(8, boxSize * CELL_FONT.getSize() / Box.SIZE));
+		}
+		return fonts[boxSize];
+	}
+
+	/**
+	 * Width of a cell value's text, measured the first time it's needed
+	 * @param pane: graphics to measure with
+	 * @param digit: cell value, 0 for blank
+	 * @param boxSize: width of the box
+	 * @return width in pixels
+	 */
+	public static int digitWidth(Graphics pane, int digit, int boxSize)
+	{
+		if (digitWidths[boxSize] == null) measure(pane, boxSize);
+		return digitWidths[boxSize][digit];
+	}
+
+	/**
+	 * Max ascent of the cell font, measured the first time it's needed
+	 * @param pane: graphics to measure with
+	 * @param boxSize: width of the box
+	 * @return ascent in pixels
+	 */
+	public static int digitAscent(Graphics pane, int boxSize)
+	{
+		if (digitWidths[boxSize] == null) measure(pane, boxSize);
+		return digitAscents[boxSize];
+	}
+
+	/**
+	 * Draws a filled rounded rectangle with a border into an image.
+	 * Java2D creates temporary shapes every time it draws a rounded
+	 * rectangle, so anything drawn often is drawn once into an image
+	 * and the image is drawn instead
+	 * @param width
+	 * @param height
+	 * @param corner: size of the rounded corners
+	 * @param fill: inside color
+	 * @param border: border color
+	 * @return image the same size as drawRoundRect would cover
+	 */
+	public static BufferedImage roundRect(int width, int height, int corner, Color fill, Color border)
+	{
+		BufferedImage image = new BufferedImage(width + 1, height + 1, BufferedImage.TYPE_INT_ARGB);
+		Graphics pane = image.getGraphics();
+		pane.setColor(fill);
+		pane.fillRoundRect(0, 0, width, height, corner, corner);
+		pane.setColor(border);
+		pane.drawRoundRect(0, 0, width, height, corner, corner);
+		pane.dispose();
+		return image;
+	}
+
+	/**
+	 * Measures all the digits once for a box size
+	 * @param pane
+	 * @param boxSize
+	 */
+	private static void measure(Graphics pane, int boxSize)
+	{
+		FontMetrics metrics = pane.getFontMetrics(cellFont(boxSize));
+		int[] widths = new int[DIGITS.length];
+		for (int d = 0; d < DIGITS.length; d++)
+		{
+			widths[d] = metrics.stringWidth(DIGITS[d]);
+		}
+		digitAscents[boxSize] = metrics.getMaxAscent();
+		digitWidths[boxSize] = widths;
+	}
+}
@@ -1,7 +1,8 @@
 /**
  * @author Adam Jilling
  * 
- * Allow us to close the window using the button in title bar
+ * Allow us to close the window using the button in title bar,
+ * optionally saving the game first
  */
 
 import java.awt.event.WindowAdapter;
@@ -9,8 +10,31 @@ import java.awt.event.WindowEvent;
 
 public class Window extends WindowAdapter
 {
+	/**
+	 * runs just before the game exits, may be null
+	 */
+	private final Runnable onClose;
+	
+	/**
+	 * Constructor for a window that exits straight away
+	 */
+	public Window()
+	{
+		this(null);
+	}
+	
+	/**
+	 * Constructor
+	 * @param someOnClose: runs just before the game exits, may be null
+	 */
+	public Window(Runnable someOnClose)
+	{
+		onClose = someOnClose;
+	}
+	
 	public void windowClosing(WindowEvent event)
 	{
+		if (onClose != null) onClose.run();
 		System.exit(0);
 	}
 }
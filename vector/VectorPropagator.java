@@ -0,0 +1,172 @@
+/**
+ * @author Adam Jilling
+ *
+ * BatchPropagator that works on as many boards per instruction as the
+ * machine's vector registers hold, using the incubating Vector API. The
+ * number of boards is rounded up to a whole number of vectors. It is kept
+ * out of src because it needs the jdk.incubator.vector module to compile
+ * and run:
+ *   javac --add-modules jdk.incubator.vector -cp bin -d bin vector/*.java
+ *   java --add-modules jdk.incubator.vector -cp bin ...
+ * BatchPropagator.create loads it by name, so nothing in src depends on it.
+ */
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorPropagator extends BatchPropagator
+{
+	/**
+	 * SPECIES: widest int vector the machine supports
+	 * ZERO, ONE, DIGITS: vectors of 0, 1 and ALL in every lane, made once
+	 *   here rather than in the loops
+	 */
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+	private static final IntVector ZERO = IntVector.zero(SPECIES);
+	private static final IntVector ONE = IntVector.broadcast(SPECIES, 1);
+	private static final IntVector DIGITS = IntVector.broadcast(SPECIES, ALL);
+
+	/**
+	 * once, twice: for each board, the digits that can go in at least one
+	 *   and at least two cells of the unit being looked at
+	 */
+	private final int[] once;
+	private final int[] twice;
+
+	/**
+	 * Constructor
+	 * @param lanes: least number of boards to work on at once
+	 */
+	public VectorPropagator(int lanes)
+	{
+		super(SPECIES.loopBound(lanes + SPECIES.length() - 1));
+		once = new int[this.lanes];
+		twice = new int[this.lanes];
+	}
+
+	protected boolean propagate(int i)
+	{
+		boolean changed = false;
+		int base = i * lanes;
+		int row = UNITS_OF[i][0] * lanes;
+		int column = UNITS_OF[i][1] * lanes;
+		int box = UNITS_OF[i][2] * lanes;
+		for (int lane = 0; lane < lanes; lane += SPECIES.length())
+		{
+			IntVector cell = IntVector.fromArray(SPECIES, bits, base + lane);
+			VectorMask<Integer> blank = cell.eq(ZERO);
+			if (!blank.anyTrue()) continue;
+
+			IntVector rowUsed = IntVector.fromArray(SPECIES, units, row + lane);
+			IntVector columnUsed = IntVector.fromArray(SPECIES, units, column + lane);
+			IntVector boxUsed = IntVector.fromArray(SPECIES, units, box + lane);
+			IntVector candidates = rowUsed.or(columnUsed).or(boxUsed).not().and(DIGITS);
+
+			VectorMask<Integer> none = blank.and(candidates.eq(ZERO));
+			VectorMask<Integer> single = blank.andNot(none)
+					.and(candidates.and(candidates.sub(ONE)).eq(ZERO));
+
+			if (none.anyTrue())
+			{
+				IntVector.fromArray(SPECIES, dead, lane).blend(ONE, none).intoArray(dead, lane);
+			}
+			if (single.anyTrue())
+			{
+				IntVector placed = ZERO.blend(candidates, single);
+				cell.or(placed).intoArray(bits, base + lane);
+				rowUsed.or(placed).intoArray(units, row + lane);
+				columnUsed.or(placed).intoArray(units, column + lane);
+				boxUsed.or(placed).intoArray(units, box + lane);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	protected boolean propagateUnit(int u)
+	{
+		boolean changed = false;
+		int[] cells = CELLS_OF[u];
+		int unit = u * lanes;
+
+		// which digits can go in one cell of the unit, and which in two or
+		// more, a cell at a time for every board so no vector is carried
+		// from one cell to the next
+		Arrays.fill(once, 0);
+		Arrays.fill(twice, 0);
+		for (int k = 0; k < Board.SIZE; k++)
+		{
+			int i = cells[k];
+			for (int lane = 0; lane < lanes; lane += SPECIES.length())
+			{
+				IntVector candidates = candidates(i, lane);
+				IntVector seen = IntVector.fromArray(SPECIES, once, lane);
+				IntVector.fromArray(SPECIES, twice, lane).or(seen.and(candidates)).intoArray(twice, lane);
+				seen.or(candidates).intoArray(once, lane);
+			}
+		}
+
+		for (int lane = 0; lane < lanes; lane += SPECIES.length())
+		{
+			IntVector seen = IntVector.fromArray(SPECIES, once, lane);
+			IntVector used = IntVector.fromArray(SPECIES, units, unit + lane);
+			VectorMask<Integer> missing = seen.or(used).compare(VectorOperators.NE, DIGITS);
+			if (missing.anyTrue())
+			{
+				IntVector.fromArray(SPECIES, dead, lane).blend(ONE, missing).intoArray(dead, lane);
+			}
+			seen.and(IntVector.fromArray(SPECIES, twice, lane).not()).intoArray(once, lane);
+		}
+
+		// once now holds the digits with a single place left
+		for (int k = 0; k < Board.SIZE; k++)
+		{
+			int i = cells[k];
+			for (int lane = 0; lane < lanes; lane += SPECIES.length())
+			{
+				IntVector place = candidates(i, lane).and(IntVector.fromArray(SPECIES, once, lane));
+				VectorMask<Integer> some = place.compare(VectorOperators.NE, ZERO);
+				if (!some.anyTrue()) continue;
+
+				VectorMask<Integer> single = place.and(place.sub(ONE)).eq(ZERO);
+				VectorMask<Integer> clash = some.andNot(single);
+				if (clash.anyTrue())
+				{
+					IntVector.fromArray(SPECIES, dead, lane).blend(ONE, clash).intoArray(dead, lane);
+				}
+				VectorMask<Integer> fill = some.and(single);
+				if (!fill.anyTrue()) continue;
+
+				IntVector placed = ZERO.blend(place, fill);
+				IntVector.fromArray(SPECIES, bits, i * lanes + lane).or(placed)
+						.intoArray(bits, i * lanes + lane);
+				for (int n = 0; n < 3; n++)
+				{
+					int at = UNITS_OF[i][n] * lanes + lane;
+					IntVector.fromArray(SPECIES, units, at).or(placed).intoArray(units, at);
+				}
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * @param i: cell index
+	 * @param lane: first board of the vector
+	 * @return digits that can go in the cell on each board, 0 where it
+	 *   is filled
+	 */
+	private IntVector candidates(int i, int lane)
+	{
+		IntVector cell = IntVector.fromArray(SPECIES, bits, i * lanes + lane);
+		IntVector used = IntVector.fromArray(SPECIES, units, UNITS_OF[i][0] * lanes + lane)
+				.or(IntVector.fromArray(SPECIES, units, UNITS_OF[i][1] * lanes + lane))
+				.or(IntVector.fromArray(SPECIES, units, UNITS_OF[i][2] * lanes + lane));
+		return used.not().and(DIGITS).blend(ZERO, cell.compare(VectorOperators.NE, ZERO));
+	}
+}